@@ -0,0 +1,98 @@
+package nl.idgis.importer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kosten per locatie van het opzoeken van geo:naam, basisgeo:id en de GML geometrie in een DOM: de oude aanpak met
+ * per locatie opnieuw gecompileerde XPath expressies en een wildcard op gml:id tegenover de gml:id index.
+ * Bij de oude aanpak lopen de kosten per locatie op met de grootte van het document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GmlIdLookupBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int locaties;
+
+    private Document doc;
+    private NodeList locatieNodes;
+    private XPath xPath;
+    private Map<String, Element> gmlIndex;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        doc = dbf.newDocumentBuilder().parse(new SyntheticGioGenerator()
+            .locaties(locaties)
+            .vertices(10)
+            .writeTemp()
+            .toFile());
+        locatieNodes = doc.getElementsByTagNameNS(GioParser.GEO_NS, "Locatie");
+        xPath = new DomGioParser.XPathBuilder()
+            .xmlns("basisgeo", GioParser.BASISGEO_NS)
+            .xmlns("geo", GioParser.GEO_NS)
+            .xmlns("gml", GioParser.GML_NS)
+            .build();
+        gmlIndex = DomGioParser.indexGmlIds(doc);
+    }
+
+    @Benchmark
+    public Node xpathPerLocatie() throws XPathExpressionException {
+        Node locatie = nextLocatie();
+        Node naam = (Node) xPath.compile("./geo:naam").evaluate(locatie, XPathConstants.NODE);
+        Node id = (Node) xPath.compile(".//basisgeo:id").evaluate(locatie, XPathConstants.NODE);
+        Node gmlNode = (Node) xPath.compile(".//*[@gml:id='id-" + id.getTextContent() + "']").evaluate(locatie, XPathConstants.NODE);
+
+        return naam != null ? gmlNode : null;
+    }
+
+    @Benchmark
+    public Node gmlIdIndex() {
+        Element locatie = (Element) nextLocatie();
+        Element naam = DomGioParser.getNaam(locatie);
+        Node id = locatie.getElementsByTagNameNS(GioParser.BASISGEO_NS, "id").item(0);
+        Element gmlNode = DomGioParser.getGeometrie(locatie, id.getTextContent(), gmlIndex);
+
+        return naam != null ? gmlNode : null;
+    }
+
+    @Benchmark
+    public Map<String, Element> gmlIdIndexOpbouwen() {
+        // Eenmalig per document, gedeeld door het aantal locaties geeft dit de extra kosten per locatie
+        return DomGioParser.indexGmlIds(doc);
+    }
+
+    private Node nextLocatie() {
+        Node locatie = locatieNodes.item(cursor);
+        cursor = (cursor + 1) % locatieNodes.getLength();
+        return locatie;
+    }
+}
@@ -0,0 +1,60 @@
+package nl.idgis.importer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Het serialiseren van een enkele GML geometrie uit de DOM naar een string, zoals de DOM parser dat per locatie doet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GmlSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int vertices;
+
+    private DomGioParser parser;
+    private Element geometrie;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        Document doc = dbf.newDocumentBuilder().parse(new SyntheticGioGenerator()
+            .locaties(1)
+            .vertices(vertices)
+            .writeTemp()
+            .toFile());
+
+        Map<String, Element> index = DomGioParser.indexGmlIds(doc);
+        Element locatie = (Element) doc.getElementsByTagNameNS(GioParser.GEO_NS, "Locatie").item(0);
+        String id = locatie.getElementsByTagNameNS(GioParser.BASISGEO_NS, "id").item(0).getTextContent();
+        geometrie = DomGioParser.getGeometrie(locatie, id, index);
+        parser = new DomGioParser();
+    }
+
+    @Benchmark
+    public String getGml() {
+        return parser.getGml(geometrie);
+    }
+}
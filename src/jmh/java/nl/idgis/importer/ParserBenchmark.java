@@ -0,0 +1,67 @@
+package nl.idgis.importer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Een volledig GIO bestand parsen, inclusief het serialiseren van de GML per locatie, met de DOM en de StAX parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ParserBenchmark {
+
+    @Param({"dom", "stax", "mapped"})
+    public String parser;
+
+    @Param({"1000", "10000"})
+    public int locaties;
+
+    @Param({"20"})
+    public int vertices;
+
+    private File file;
+    private GioParser gioParser;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        file = new SyntheticGioGenerator()
+            .locaties(locaties)
+            .vertices(vertices)
+            .mix(0.1, 0.2)
+            .writeTemp()
+            .toFile();
+        switch (parser) {
+            case "dom":
+                gioParser = new DomGioParser();
+                break;
+            case "stax":
+                gioParser = new StaxGioParser();
+                break;
+            default:
+                gioParser = new MappedGioParser(0);
+        }
+    }
+
+    @Benchmark
+    public GioMetadata parse(Blackhole blackhole) {
+        return gioParser.parse(file, blackhole::consume);
+    }
+}
@@ -0,0 +1,163 @@
+package nl.idgis.importer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Genereert synthetische GIO bestanden voor de benchmarks, met een instelbaar aantal locaties, vertices per
+ * geometrie en verhouding tussen punten, lijnen en vlakken. Met dezelfde seed is de uitvoer altijd gelijk.
+ *
+ * Los te gebruiken via: java ... nl.idgis.importer.SyntheticGioGenerator uitvoer.gml [locaties] [vertices] [punt] [lijn]
+ */
+public class SyntheticGioGenerator {
+
+    private int locaties = 1000;
+    private int vertices = 20;
+    private double puntAandeel = 0;
+    private double lijnAandeel = 0;
+    private int decimalen = 3;
+    private long seed = 42;
+
+    public SyntheticGioGenerator locaties(int locaties) {
+        this.locaties = locaties;
+        return this;
+    }
+
+    public SyntheticGioGenerator vertices(int vertices) {
+        if (vertices < 4) {
+            throw new IllegalArgumentException("Een vlak heeft minimaal 4 vertices nodig: " + vertices);
+        }
+        this.vertices = vertices;
+        return this;
+    }
+
+    /**
+     * Het aandeel punten en lijnen, de rest van de locaties wordt een vlak.
+     */
+    public SyntheticGioGenerator mix(double puntAandeel, double lijnAandeel) {
+        if (puntAandeel < 0 || lijnAandeel < 0 || puntAandeel + lijnAandeel > 1) {
+            throw new IllegalArgumentException("Ongeldige verhouding punten/lijnen: " + puntAandeel + "/" + lijnAandeel);
+        }
+        this.puntAandeel = puntAandeel;
+        this.lijnAandeel = lijnAandeel;
+        return this;
+    }
+
+    public SyntheticGioGenerator decimalen(int decimalen) {
+        this.decimalen = decimalen;
+        return this;
+    }
+
+    public SyntheticGioGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public Path write(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+        return file;
+    }
+
+    public Path writeTemp() throws IOException {
+        Path file = Files.createTempFile("synthetisch-gio-", ".gml");
+        file.toFile().deleteOnExit();
+        return write(file);
+    }
+
+    public void write(Writer out) throws IOException {
+        Random random = new Random(seed);
+        BufferedWriter writer = out instanceof BufferedWriter ? (BufferedWriter) out : new BufferedWriter(out);
+        String format = "%." + decimalen + "f %." + decimalen + "f";
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<geo:GeoInformatieObjectVaststelling xmlns:geo=\"" + GioParser.GEO_NS + "\" xmlns:basisgeo=\"" + GioParser.BASISGEO_NS
+            + "\" xmlns:gio=\"" + GioParser.GIO_NS + "\" xmlns:gml=\"" + GioParser.GML_NS + "\" schemaversie=\"1.3.0\">\n");
+        writer.write("  <geo:context>\n    <gio:GeografischeContext>\n");
+        writer.write("      <gio:achtergrondVerwijzing>cbs</gio:achtergrondVerwijzing>\n");
+        writer.write("      <gio:achtergrondActualiteit>2021-01-01</gio:achtergrondActualiteit>\n");
+        writer.write("    </gio:GeografischeContext>\n  </geo:context>\n");
+        writer.write("  <geo:vastgesteldeVersie>\n    <geo:GeoInformatieObjectVersie>\n");
+        writer.write("      <geo:FRBRWork>/join/id/regdata/gm9999/2023/synthetisch" + seed + "</geo:FRBRWork>\n");
+        writer.write("      <geo:FRBRExpression>/join/id/regdata/gm9999/2023/synthetisch" + seed + "/nld@2023-01-01;1</geo:FRBRExpression>\n");
+        writer.write("      <geo:naam>Synthetisch GIO</geo:naam>\n      <geo:locaties>\n");
+
+        for (int i = 0; i < locaties; i++) {
+            String id = new UUID(random.nextLong(), random.nextLong()).toString();
+            double x = 13_000 + random.nextDouble() * 265_000;
+            double y = 306_000 + random.nextDouble() * 330_000;
+
+            writer.write("        <geo:Locatie>\n          <geo:naam>Locatie " + (i + 1) + "</geo:naam>\n");
+            writer.write("          <geo:geometrie>\n            <basisgeo:Geometrie>\n");
+            writer.write("              <basisgeo:id>" + id + "</basisgeo:id>\n              <basisgeo:geometrie>\n");
+
+            double soort = random.nextDouble();
+            if (soort < puntAandeel) {
+                writer.write("                <gml:Point gml:id=\"id-" + id + "\" srsName=\"urn:ogc:def:crs:EPSG::28992\">");
+                writer.write("<gml:pos>" + String.format(Locale.ROOT, format, x, y) + "</gml:pos></gml:Point>\n");
+            } else if (soort < puntAandeel + lijnAandeel) {
+                writer.write("                <gml:LineString gml:id=\"id-" + id + "\" srsName=\"urn:ogc:def:crs:EPSG::28992\">");
+                writer.write("<gml:posList srsDimension=\"2\">");
+                for (int v = 0; v < vertices; v++) {
+                    x += random.nextDouble() * 20 - 10;
+                    y += random.nextDouble() * 20 - 10;
+                    writer.write((v > 0 ? " " : "") + String.format(Locale.ROOT, format, x, y));
+                }
+                writer.write("</gml:posList></gml:LineString>\n");
+            } else {
+                writer.write("                <gml:MultiSurface gml:id=\"id-" + id + "\" srsName=\"urn:ogc:def:crs:EPSG::28992\">\n");
+                writer.write("                  <gml:surfaceMember>\n                    <gml:Polygon gml:id=\"id-" + id + "-0\">\n");
+                writer.write("                      <gml:exterior><gml:LinearRing><gml:posList srsDimension=\"2\">");
+                double radius = 10 + random.nextDouble() * 200;
+                String eerste = null;
+                for (int v = 0; v < vertices - 1; v++) {
+                    double hoek = -2 * Math.PI * v / (vertices - 1);
+                    double r = radius * (0.8 + random.nextDouble() * 0.2);
+                    String coordinaat = String.format(Locale.ROOT, format, x + Math.cos(hoek) * r, y + Math.sin(hoek) * r);
+                    eerste = eerste == null ? coordinaat : eerste;
+                    writer.write((v > 0 ? " " : "") + coordinaat);
+                }
+                writer.write(" " + eerste + "</gml:posList></gml:LinearRing></gml:exterior>\n");
+                writer.write("                    </gml:Polygon>\n                  </gml:surfaceMember>\n");
+                writer.write("                </gml:MultiSurface>\n");
+            }
+
+            writer.write("              </basisgeo:geometrie>\n            </basisgeo:Geometrie>\n");
+            writer.write("          </geo:geometrie>\n        </geo:Locatie>\n");
+        }
+
+        writer.write("      </geo:locaties>\n    </geo:GeoInformatieObjectVersie>\n  </geo:vastgesteldeVersie>\n");
+        writer.write("</geo:GeoInformatieObjectVaststelling>\n");
+        writer.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Gebruik: SyntheticGioGenerator <uitvoer> [locaties] [vertices] [puntAandeel] [lijnAandeel]");
+            System.exit(1);
+        }
+
+        SyntheticGioGenerator generator = new SyntheticGioGenerator();
+        if (args.length > 1) {
+            generator.locaties(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            generator.vertices(Integer.parseInt(args[2]));
+        }
+        if (args.length > 4) {
+            generator.mix(Double.parseDouble(args[3]), Double.parseDouble(args[4]));
+        }
+
+        Path file = generator.write(Paths.get(args[0]));
+        System.out.printf("GIO geschreven naar %s (%d bytes)%n", file.toAbsolutePath(), Files.size(file));
+    }
+}
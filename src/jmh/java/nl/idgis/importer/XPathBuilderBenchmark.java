@@ -0,0 +1,66 @@
+package nl.idgis.importer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * De namespace resolutie van de XPathBuilder: een XPath bouwen, prefixen opzoeken in beide richtingen en een
+ * expressie met prefixen compileren.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XPathBuilderBenchmark {
+
+    private XPath xPath;
+    private NamespaceContext namespaceContext;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        xPath = build();
+        namespaceContext = xPath.getNamespaceContext();
+    }
+
+    @Benchmark
+    public XPath build() {
+        return new DomGioParser.XPathBuilder()
+            .xmlns("basisgeo", GioParser.BASISGEO_NS)
+            .xmlns("geo", GioParser.GEO_NS)
+            .xmlns("gio", GioParser.GIO_NS)
+            .xmlns("gml", GioParser.GML_NS)
+            .build();
+    }
+
+    @Benchmark
+    public String getNamespaceURI() {
+        return namespaceContext.getNamespaceURI("gml");
+    }
+
+    @Benchmark
+    public String getPrefix() {
+        return namespaceContext.getPrefix(GioParser.GML_NS);
+    }
+
+    @Benchmark
+    public XPathExpression compile() throws XPathExpressionException {
+        return xPath.compile("//geo:FRBRWork");
+    }
+}
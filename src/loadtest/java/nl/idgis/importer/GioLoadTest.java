@@ -0,0 +1,196 @@
+package nl.idgis.importer;
+
+import nl.idgis.Main;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loadtest van de hele import: start een tijdelijke PostgreSQL ({@link LocalPostgres}) met het deel van het bzk
+ * schema dat de importer gebruikt, importeert synthetische GIO's van 1.000, 10.000 en 100.000 locaties via
+ * {@link GioImporter#importGio(GioImportJob)} en controleert daarna de aantallen rijen, de koppelingen met de groep
+ * en de doorvoer. Eindigt met exit code 1 als een van de controles faalt, zo laat de taak loadtest de build falen.
+ *
+ * De lokale installatie moet PostGIS bevatten: de doorvoer hangt vooral af van het omzetten van de GML door PostGIS,
+ * zonder PostGIS zeggen de drempels niets en faalt de loadtest. De importer draait met de standaard instellingen uit
+ * application.properties. De taak loadtest laat de IMPORT_* en DB_* variabelen van de build weg, een instelling
+ * voor de loadtest krijgt het voorvoegsel LOADTEST_ (bijvoorbeeld LOADTEST_IMPORT_THREADS=4).
+ *
+ * <pre>
+ * PG_BIN                       directory met initdb en pg_ctl, leeg is het PATH
+ * LOADTEST_SIZES               aantallen locaties per GIO, standaard 1000,10000,100000
+ * LOADTEST_MIN_PER_SECOND      minimale doorvoer in locaties per seconde, standaard 500
+ * </pre>
+ *
+ * Bijvoorbeeld: PG_BIN=/usr/lib/postgresql/14/bin ./gradlew loadtest
+ */
+public class GioLoadTest {
+
+    // Bij kleinere GIO's overheerst het opwarmen van de JVM en de connection pool, daar wordt de doorvoer niet getoetst
+    private static final int MIN_SIZE_FOR_THROUGHPUT = 10_000;
+    private static final String REGELING_EXPRESSION = "/akn/nl/act/gm9999/2023/loadtest/nld@2023-01-01;1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GioImporter gioImporter;
+    private final double minPerSecond;
+    private final List<String> fouten = new ArrayList<>();
+    private final List<String> resultaten = new ArrayList<>();
+
+    GioLoadTest(JdbcTemplate jdbcTemplate, GioImporter gioImporter, double minPerSecond) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gioImporter = gioImporter;
+        this.minPerSecond = minPerSecond;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String bin = setting("PG_BIN", "");
+        List<Integer> sizes = new ArrayList<>();
+        for (String size : setting("LOADTEST_SIZES", "1000,10000,100000").split(",")) {
+            sizes.add(Integer.parseInt(size.trim()));
+        }
+        double minPerSecond = Double.parseDouble(setting("LOADTEST_MIN_PER_SECOND", "500"));
+
+        boolean geslaagd = false;
+        try (LocalPostgres postgres = new LocalPostgres(bin.isEmpty() ? null : new File(bin))) {
+            postgres.start();
+            System.setProperty("DB_HOST", "localhost");
+            System.setProperty("DB_PORT", Integer.toString(postgres.getPort()));
+            System.setProperty("DB_NAME", LocalPostgres.DATABASE);
+            System.setProperty("DB_USER", LocalPostgres.USER);
+            System.setProperty("DB_PASS", "");
+
+            try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Main.class)) {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+                if (createSchema(jdbcTemplate)) {
+                    GioLoadTest loadTest = new GioLoadTest(jdbcTemplate, context.getBean(GioImporter.class), minPerSecond);
+                    for (int size : sizes) {
+                        loadTest.run(size);
+                    }
+                    geslaagd = loadTest.rapporteer();
+                }
+            }
+        }
+        System.exit(geslaagd ? 0 : 1);
+    }
+
+    private static String setting(String name, String defaultValue) {
+        String value = System.getProperty(name, System.getenv(name));
+        return value != null ? value : defaultValue;
+    }
+
+    // Geeft false terug als PostGIS ontbreekt, de loadtest is dan mislukt
+    private static boolean createSchema(JdbcTemplate jdbcTemplate) {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION postgis");
+            System.out.println("PostGIS extensie aangemaakt");
+        } catch (DataAccessException e) {
+            System.err.println("FOUT: PostGIS is niet beschikbaar in de PostgreSQL installatie van PG_BIN, zonder PostGIS is de loadtest niet zinvol: "
+                    + e.getMostSpecificCause().getMessage());
+            return false;
+        }
+        new ResourceDatabasePopulator(new ClassPathResource("loadtest-schema.sql")).execute(jdbcTemplate.getDataSource());
+        return true;
+    }
+
+    void run(int size) throws IOException {
+        // Alleen vlakken, een GIO heeft een geometrietype. De seed bepaalt ook het FRBRWork, zo is ieder GIO terug te vinden
+        SyntheticGioGenerator generator = new SyntheticGioGenerator().locaties(size).seed(size);
+        Path file = Files.createTempFile("gio-loadtest-" + size + "-", ".gml");
+        try {
+            generator.write(file);
+            String frbrWork = "/join/id/regdata/gm9999/2023/synthetisch" + size;
+            System.out.printf("%nImport van %d locaties (%d MB)%n", size, Files.size(file) / (1024 * 1024));
+
+            long start = System.nanoTime();
+            try {
+                gioImporter.importGio(new GioImportJob(file.toFile(), "Loadtest " + size, REGELING_EXPRESSION));
+            } catch (RuntimeException e) {
+                fout(size, "de import is mislukt: " + e.getMessage());
+                e.printStackTrace();
+                return;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double perSecond = size / seconds;
+
+            controleer(size, frbrWork);
+            if (size >= MIN_SIZE_FOR_THROUGHPUT && perSecond < minPerSecond) {
+                fout(size, String.format("doorvoer %.0f locaties/s, minimaal %.0f", perSecond, minPerSecond));
+            }
+            resultaten.add(String.format("%9d locaties  %8.1f s  %8.0f locaties/s", size, seconds, perSecond));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void controleer(int size, String frbrWork) {
+        List<Integer> groepen = jdbcTemplate.queryForList(
+                "SELECT locatie_id FROM bzk.informatieobjectversie WHERE frbr_work = ?", Integer.class, frbrWork);
+        if (groepen.size() != 1) {
+            fout(size, groepen.size() + " informatieobjectversies voor " + frbrWork + ", verwacht 1");
+            return;
+        }
+        int groep = groepen.get(0);
+
+        Integer groepLocatie = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM bzk.locatie WHERE id = ? AND ind_groep_jn AND regeling_id = 1", Integer.class, groep);
+        verwacht(size, "groep locatie", 1, groepLocatie);
+
+        Integer koppelingen = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM bzk.groep_locatie WHERE locatiegroep_id = ?", Integer.class, groep);
+        verwacht(size, "koppelingen met de groep", size, koppelingen);
+
+        // Iedere gekoppelde locatie hoort bij de regeling en heeft een eigen geometrie met een eigen basisgeo:id
+        Integer locaties = jdbcTemplate.queryForObject(
+                "SELECT count(DISTINCT l.id) FROM bzk.groep_locatie gl " +
+                "JOIN bzk.locatie l ON l.id = gl.locatie_id AND NOT l.ind_groep_jn AND l.regeling_id = 1 " +
+                "WHERE gl.locatiegroep_id = ?", Integer.class, groep);
+        verwacht(size, "gekoppelde locaties", size, locaties);
+
+        Integer geometrieen = jdbcTemplate.queryForObject(
+                "SELECT count(DISTINCT g.geometrie_id) FROM bzk.groep_locatie gl " +
+                "JOIN bzk.locatie l ON l.id = gl.locatie_id " +
+                "JOIN bzk.geometrie g ON g.id = l.geometrie_id " +
+                "WHERE gl.locatiegroep_id = ?", Integer.class, groep);
+        verwacht(size, "geometrieen", size, geometrieen);
+
+        Integer vlakken = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM bzk.groep_locatie gl " +
+                "JOIN bzk.locatie l ON l.id = gl.locatie_id " +
+                "WHERE gl.locatiegroep_id = ? AND l.geometrietype = ?", Integer.class, groep, Geometrietype.VLAK);
+        verwacht(size, "vlakken", size, vlakken);
+    }
+
+    private void verwacht(int size, String wat, int verwacht, Integer aantal) {
+        if (aantal == null || aantal != verwacht) {
+            fout(size, aantal + " " + wat + ", verwacht " + verwacht);
+        }
+    }
+
+    private void fout(int size, String melding) {
+        System.err.printf("FOUT bij %d locaties: %s%n", size, melding);
+        fouten.add(size + " locaties: " + melding);
+    }
+
+    boolean rapporteer() {
+        System.out.println();
+        System.out.println("Loadtest resultaten:");
+        resultaten.forEach(System.out::println);
+        if (fouten.isEmpty()) {
+            System.out.println("Alle controles geslaagd");
+            return true;
+        }
+        System.out.println(fouten.size() + " controle(s) mislukt:");
+        fouten.forEach(fout -> System.out.println("  " + fout));
+        return false;
+    }
+}
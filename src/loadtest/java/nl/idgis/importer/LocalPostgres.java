@@ -0,0 +1,131 @@
+package nl.idgis.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Een tijdelijke PostgreSQL server voor de loadtest, gestart met initdb en pg_ctl uit een lokale installatie. De data
+ * directory staat in een tijdelijke directory en wordt bij het stoppen weer verwijderd. De server luistert alleen op
+ * localhost, op een vrije poort, met gebruiker {@link #USER} zonder wachtwoord.
+ *
+ * PostgreSQL weigert als root te draaien, start de loadtest dus als gewone gebruiker.
+ */
+class LocalPostgres implements AutoCloseable {
+
+    static final String USER = "loadtest";
+    static final String DATABASE = "postgres";
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    private final File binDirectory;
+    private Path directory;
+    private Path dataDirectory;
+    private int port;
+    private Thread shutdownHook;
+
+    /**
+     * @param binDirectory de directory met initdb en pg_ctl, of null om ze op het PATH te zoeken
+     */
+    LocalPostgres(File binDirectory) {
+        this.binDirectory = binDirectory;
+    }
+
+    void start() {
+        try {
+            directory = Files.createTempDirectory("gio-loadtest-pg");
+            dataDirectory = directory.resolve("data");
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Er kan geen tijdelijke directory of poort voor PostgreSQL gereserveerd worden", e);
+        }
+
+        run("initdb", "-D", dataDirectory.toString(), "-U", USER, "-A", "trust", "-E", "UTF8", "--no-locale", "--no-sync");
+        shutdownHook = new Thread(this::stop, "loadtest-postgres-stop");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        run("pg_ctl", "-D", dataDirectory.toString(), "-l", directory.resolve("postgres.log").toString(), "-w", "-t", Long.toString(TIMEOUT_SECONDS),
+                "-o", "-p " + port + " -c listen_addresses=localhost -c unix_socket_directories=''", "start");
+        System.out.printf("PostgreSQL gestart op localhost:%d (%s)%n", port, dataDirectory);
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    /**
+     * Stopt de server en verwijdert de data directory. Kan vaker aangeroepen worden.
+     */
+    synchronized void stop() {
+        if (directory == null) {
+            return;
+        }
+        try {
+            if (Files.exists(dataDirectory.resolve("postmaster.pid"))) {
+                run("pg_ctl", "-D", dataDirectory.toString(), "-m", "fast", "-w", "stop");
+            }
+        } finally {
+            delete(directory);
+            directory = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // De JVM stopt al, de hook heeft de server dan gestopt
+            }
+            shutdownHook = null;
+        }
+    }
+
+    private void run(String command, String... args) {
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add(binDirectory != null ? new File(binDirectory, command).getPath() : command);
+        commandLine.addAll(Arrays.asList(args));
+
+        Path output = directory.resolve(command + ".out");
+        try {
+            Process process = new ProcessBuilder(commandLine)
+                    .redirectErrorStream(true)
+                    .redirectOutput(output.toFile())
+                    .start();
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IllegalStateException(command + " is na " + TIMEOUT_SECONDS + " seconden niet klaar");
+            }
+            if (process.exitValue() != 0) {
+                throw new IllegalStateException(command + " is mislukt (exit code " + process.exitValue() + "):\n"
+                        + new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(command + " kan niet gestart worden, geef met PG_BIN de directory met de PostgreSQL programma's op", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(command + " is onderbroken", e);
+        }
+    }
+
+    private static void delete(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("De tijdelijke directory " + directory + " kan niet verwijderd worden: " + e.getMessage());
+        }
+    }
+}
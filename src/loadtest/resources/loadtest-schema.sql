@@ -0,0 +1,69 @@
+-- Het deel van het bzk schema dat de importer leest en schrijft, met een regeling voor de synthetische GIO's
+CREATE TABLE public.stop_waarde (
+    id integer PRIMARY KEY,
+    stop_id text NOT NULL
+);
+
+CREATE SCHEMA bzk;
+
+CREATE TABLE bzk.regeling (
+    id integer PRIMARY KEY
+);
+
+CREATE TABLE bzk.regelingversie (
+    id integer PRIMARY KEY,
+    regeling_id integer NOT NULL REFERENCES bzk.regeling (id),
+    frbr_expression text NOT NULL,
+    eindverantwoordelijke_id integer REFERENCES public.stop_waarde (id),
+    maker_id integer REFERENCES public.stop_waarde (id)
+);
+
+CREATE TABLE bzk.geometrie (
+    id serial PRIMARY KEY,
+    naam text,
+    geometrie_id text NOT NULL,
+    geometrie public.geometry NOT NULL
+);
+CREATE INDEX geometrie_geometrie_id_idx ON bzk.geometrie (geometrie_id);
+
+CREATE TABLE bzk.locatie (
+    id serial PRIMARY KEY,
+    naam text,
+    datum_begin date,
+    ind_groep_jn boolean NOT NULL,
+    regeling_id integer REFERENCES bzk.regeling (id),
+    geometrietype text,
+    geometrie_id integer REFERENCES bzk.geometrie (id),
+    identificatie text
+);
+CREATE INDEX locatie_geometrie_id_idx ON bzk.locatie (geometrie_id);
+
+CREATE TABLE bzk.groep_locatie (
+    locatiegroep_id integer NOT NULL REFERENCES bzk.locatie (id),
+    locatie_id integer NOT NULL REFERENCES bzk.locatie (id)
+);
+CREATE INDEX groep_locatie_locatiegroep_id_idx ON bzk.groep_locatie (locatiegroep_id);
+
+CREATE TABLE bzk.informatieobjectversie (
+    id serial PRIMARY KEY,
+    frbr_work text,
+    frbr_expression text,
+    soort_work_id integer,
+    regeling_id integer REFERENCES bzk.regeling (id),
+    eindverantwoordelijke_id integer,
+    maker_id integer,
+    formaat_informatieobject_id integer,
+    naam text,
+    officiele_titel text,
+    publicatie_instructie_id integer,
+    stop_schema_versie text,
+    achtergrond_verwijzing text,
+    achtergrond_actualiteit date,
+    nauwkeurigheid integer,
+    locatie_id integer REFERENCES bzk.locatie (id)
+);
+
+INSERT INTO public.stop_waarde (id, stop_id) VALUES (1, '/tooi/id/gemeente/gm9999');
+INSERT INTO bzk.regeling (id) VALUES (1);
+INSERT INTO bzk.regelingversie (id, regeling_id, frbr_expression, eindverantwoordelijke_id, maker_id)
+    VALUES (1, 1, '/akn/nl/act/gm9999/2023/loadtest/nld@2023-01-01;1', 1, 1);
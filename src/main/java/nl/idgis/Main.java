@@ -1,24 +1,40 @@
 package nl.idgis;
 
+import nl.idgis.config.GioImporterConfig;
+import nl.idgis.importer.GioBatchImporter;
+import nl.idgis.importer.GioImportService;
 import nl.idgis.importer.GioImporter;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.PropertySource;
 
-@Configuration
-@ComponentScan
+import java.io.File;
+
+// Geen @ComponentScan en geen CGLIB proxy's van de configuratie: alle beans staan in GioImporterConfig en roepen
+// elkaar niet direct aan, zo start de context merkbaar sneller
+@Configuration(proxyBeanMethods = false)
+@Import(GioImporterConfig.class)
 @PropertySource("classpath:application.properties")
 @PropertySource(value = "file:${spring.config.location}", ignoreResourceNotFound = true)
 public class Main {
 
     public static void main(String[] args) {
-        try {
-            ApplicationContext context = new AnnotationConfigApplicationContext(Main.class);
-
-            GioImporter gioImporter = context.getBean(GioImporter.class);
-            gioImporter.importGio();
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Main.class)) {
+            String manifest = context.getEnvironment().getProperty("import.manifest", "");
+            if (context.getEnvironment().getProperty("import.service.port", Integer.class, 0) > 0) {
+                // Bij het stoppen van de JVM (ctrl-c, SIGTERM) sluit de context en stopt daarmee de service
+                context.registerShutdownHook();
+                GioImportService service = context.getBean(GioImportService.class);
+                service.start();
+                service.await();
+            } else if (manifest.isEmpty()) {
+                GioImporter gioImporter = context.getBean(GioImporter.class);
+                gioImporter.importGio();
+            } else {
+                GioBatchImporter gioBatchImporter = context.getBean(GioBatchImporter.class);
+                gioBatchImporter.importManifest(new File(manifest));
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1,16 +1,36 @@
 package nl.idgis.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import nl.idgis.importer.DeduplicatingGioParser;
+import nl.idgis.importer.DomGioParser;
+import nl.idgis.importer.GioBatchImporter;
+import nl.idgis.importer.GioImportService;
 import nl.idgis.importer.GioImporter;
+import nl.idgis.importer.GioParser;
+import nl.idgis.importer.ImportOptions;
+import nl.idgis.importer.JmxMetricsRegistry;
+import nl.idgis.importer.MappedGioParser;
+import nl.idgis.importer.MetricsRegistry;
+import nl.idgis.importer.SimplifyingGioParser;
+import nl.idgis.importer.StaxGioParser;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.ClassUtils;
 
 import javax.sql.DataSource;
+import java.io.File;
 
-@Configuration
+@Configuration(proxyBeanMethods = false)
 public class GioImporterConfig {
 
     private final Environment environment;
@@ -20,15 +40,31 @@ public class GioImporterConfig {
         this.environment = environment;
     }
 
-    @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
-        driverManagerDataSource.setDriverClassName("org.postgresql.Driver");
-        driverManagerDataSource.setUrl(environment.getProperty("db.url"));
-        driverManagerDataSource.setUsername(environment.getProperty("db.username"));
-        driverManagerDataSource.setPassword(environment.getProperty("db.password"));
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("gio-importer");
+        // Bij het wegschrijven naar bestanden is er geen database, dan hoeven de db.* instellingen niet ingevuld te
+        // zijn. De pool maakt pas bij het eerste gebruik verbinding, zonder url faalt alleen dat gebruik.
+        if (!environment.getProperty("import.output.dir", "").isEmpty()) {
+            return dataSource;
+        }
+
+        dataSource.setDriverClassName("org.postgresql.Driver");
+        dataSource.setJdbcUrl(environment.getProperty("db.url"));
+        dataSource.setUsername(environment.getProperty("db.username"));
+        dataSource.setPassword(environment.getProperty("db.password"));
+        dataSource.setMaximumPoolSize(getPoolSize());
+        dataSource.setConnectionTimeout(environment.getProperty("db.pool.connection-timeout", Long.class, 30_000L));
+        dataSource.setIdleTimeout(environment.getProperty("db.pool.idle-timeout", Long.class, 600_000L));
+        dataSource.setMaxLifetime(environment.getProperty("db.pool.max-lifetime", Long.class, 1_800_000L));
 
-        return driverManagerDataSource;
+        return dataSource;
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
     }
 
     @Bean
@@ -37,11 +73,148 @@ public class GioImporterConfig {
     }
 
     @Bean
-    public GioImporter gioImporter(JdbcTemplate jdbcTemplate) {
+    public GioParser gioParser() {
+        GioParser gioParser = createParser(environment.getProperty("import.parser", "dom"));
+
+        Integer decimalen = environment.getProperty("import.simplify.decimals", Integer.class);
+        if (decimalen != null) {
+            gioParser = new SimplifyingGioParser(gioParser, decimalen, environment.getProperty("import.simplify.vertices", Boolean.class, false));
+        }
+        // Na het afronden, zodat geometrieen die na het afronden gelijk zijn ook samengevoegd worden
+        if (environment.getProperty("import.dedupe", Boolean.class, false)) {
+            gioParser = new DeduplicatingGioParser(gioParser);
+        }
+        return gioParser;
+    }
+
+    private GioParser createParser(String parser) {
+        switch (parser) {
+            case "dom":
+                return new DomGioParser();
+            case "stax":
+                return new StaxGioParser();
+            case "mapped":
+                return new MappedGioParser(environment.getProperty("import.parser.threads", Integer.class, 0));
+            default:
+                throw new IllegalArgumentException("Onbekende parser '" + parser + "', kies uit: dom, stax, mapped");
+        }
+    }
+
+    @Bean
+    public ImportOptions importOptions() {
+        ImportOptions options = new ImportOptions();
+        options.setBatchSize(environment.getProperty("import.batch.size", Integer.class, 500));
+        options.setBulk(environment.getProperty("import.bulk", Boolean.class, false));
+        options.setValidate(environment.getProperty("import.validate", Boolean.class, true));
+        options.setDryRun(environment.getProperty("import.dry-run", Boolean.class, false));
+        options.setDelta(environment.getProperty("import.delta", Boolean.class, false));
+        if (options.isBulk() && options.isDelta()) {
+            throw new IllegalArgumentException("import.delta kan niet gecombineerd worden met import.bulk");
+        }
+        options.setCommitInterval(environment.getProperty("import.commit.interval", Integer.class, 0));
+        options.setThreads(environment.getProperty("import.threads", Integer.class, 1));
+        options.setQueueSize(environment.getProperty("import.queue.size", Integer.class, 4));
+        options.setFileThreads(environment.getProperty("import.files.parallel", Integer.class, 1));
+        options.setAdaptiveLatency(environment.getProperty("import.adaptive.latency", Integer.class, 0));
+        options.setAdaptiveBatchBounds(environment.getProperty("import.adaptive.batch.min", Integer.class, 50),
+                environment.getProperty("import.adaptive.batch.max", Integer.class, 2000));
+        options.setMaxRate(environment.getProperty("import.max.rate", Integer.class, 0));
+
+        options.setProgressInterval(environment.getProperty("import.progress.interval", Integer.class, 10));
+
+        String metrics = environment.getProperty("import.metrics.dir", "");
+        if (!metrics.isEmpty()) {
+            options.setMetricsDirectory(new File(metrics));
+        }
+
+        String output = environment.getProperty("import.output.dir", "");
+        if (!output.isEmpty()) {
+            // Een bestand als uitvoer heeft geen staging tabel, vorige versie of checkpoints in de database
+            if (options.isBulk() || options.isDelta() || !environment.getProperty("import.journal", "").isEmpty()) {
+                throw new IllegalArgumentException("import.output.dir kan niet gecombineerd worden met import.bulk, import.delta of import.journal");
+            }
+            options.setOutputDirectory(new File(output));
+        }
+
+        String journal = environment.getProperty("import.journal", "");
+        if (!journal.isEmpty()) {
+            // Het journal volgt de checkpoints van de import, die zijn er alleen met een enkele thread en een commit interval
+            if (options.isBulk() || options.getThreads() > 1 || options.getCommitInterval() == 0) {
+                throw new IllegalArgumentException("import.journal werkt alleen met import.threads=1, import.commit.interval > 0 en zonder import.bulk");
+            }
+            options.setJournalDirectory(new File(journal));
+        }
+
+        return options;
+    }
+
+    @Bean
+    public MetricsRegistry metricsRegistry() {
+        String registry = environment.getProperty("import.metrics.registry", "");
+        if (registry.isEmpty()) {
+            return MetricsRegistry.NOOP;
+        }
+        if ("jmx".equals(registry)) {
+            JmxMetricsRegistry jmx = new JmxMetricsRegistry();
+            jmx.register();
+            return jmx;
+        }
+
+        Class<?> type;
+        try {
+            type = ClassUtils.forName(registry, GioImporterConfig.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new IllegalArgumentException("De klasse van import.metrics.registry kan niet gevonden worden: " + registry, e);
+        }
+        if (!MetricsRegistry.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException("import.metrics.registry moet " + MetricsRegistry.class.getName() + " implementeren: " + registry);
+        }
+        return (MetricsRegistry) BeanUtils.instantiateClass(type);
+    }
+
+    @Bean
+    public GioImporter gioImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, GioParser gioParser,
+                                   ImportOptions importOptions, MetricsRegistry metricsRegistry) {
         String inputFile = environment.getProperty("input.file");
         String gioName = environment.getProperty("gio.name");
         String regelingExpression = environment.getProperty("regeling.expression");
 
-        return new GioImporter(jdbcTemplate, inputFile, gioName, regelingExpression);
+        return new GioImporter(jdbcTemplate, transactionManager, gioParser, importOptions, metricsRegistry, inputFile, gioName, regelingExpression);
+    }
+
+    @Bean
+    public GioBatchImporter gioBatchImporter(GioImporter gioImporter, ImportOptions importOptions) {
+        return new GioBatchImporter(gioImporter, importOptions, environment.getProperty("regeling.expression"));
+    }
+
+    // Alleen in service mode, bij een enkele import of een manifest is er geen service om te stoppen
+    @Bean(destroyMethod = "stop")
+    @Conditional(ServiceMode.class)
+    public GioImportService gioImportService(GioImporter gioImporter, ImportOptions importOptions) {
+        return new GioImportService(gioImporter, importOptions, environment.getProperty("regeling.expression"),
+                environment.getProperty("import.service.host", "localhost"), environment.getProperty("import.service.port", Integer.class, 0),
+                environment.getProperty("import.service.queue.size", Integer.class, 100));
+    }
+
+    private int getPoolSize() {
+        int threads = environment.getProperty("import.threads", Integer.class, 1);
+        int files = environment.getProperty("import.files.parallel", Integer.class, 1);
+        int required = files * (threads + 1);
+        int poolSize = environment.getProperty("db.pool.size", Integer.class, required);
+        // Iedere worker heeft een eigen connectie nodig, naast de connectie van de transactie van de import zelf.
+        // Bij meerdere GIO's tegelijk geldt dat per GIO.
+        if ((threads > 1 || files > 1) && poolSize < required) {
+            throw new IllegalArgumentException("db.pool.size moet minimaal import.files.parallel * (import.threads + 1) (" + required + ") zijn: " + poolSize);
+        }
+
+        return poolSize;
+    }
+
+    static class ServiceMode implements Condition {
+
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            return context.getEnvironment().getProperty("import.service.port", Integer.class, 0) > 0;
+        }
     }
 }
@@ -0,0 +1,89 @@
+package nl.idgis.importer;
+
+/**
+ * Past de chunk grootte en het aantal chunks dat tegelijk weggeschreven wordt aan bij de belasting van de database
+ * (AIMD). Blijft een chunk, inclusief de commit, binnen de doellatentie, dan wordt de volgende chunk iets groter en
+ * mag er na een ronde van zulke chunks een chunk meer tegelijk weggeschreven worden. Duurt een chunk langer, dan
+ * worden beide gehalveerd. Alles binnen de ingestelde grenzen, met hooguit import.threads chunks tegelijk.
+ *
+ * Zonder doellatentie blijven de chunk grootte en het aantal chunks tegelijk vast.
+ */
+final class AdaptiveWriteControl {
+
+    private final ImportMetrics metrics;
+    private final long doelNanos;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int maxGelijktijdig;
+
+    private volatile int batchSize;
+    private int gelijktijdig;
+    private int bezig;
+    private int goed;
+    private long laatsteVerlaging = System.nanoTime();
+
+    AdaptiveWriteControl(ImportOptions options, ImportMetrics metrics) {
+        this.metrics = metrics;
+        this.doelNanos = options.getAdaptiveLatency() * 1_000_000L;
+        this.minBatchSize = doelNanos > 0 ? options.getAdaptiveBatchMin() : options.getBatchSize();
+        this.maxBatchSize = doelNanos > 0 ? options.getAdaptiveBatchMax() : options.getBatchSize();
+        this.maxGelijktijdig = options.getThreads();
+        this.batchSize = Math.max(minBatchSize, Math.min(maxBatchSize, options.getBatchSize()));
+        this.gelijktijdig = maxGelijktijdig;
+    }
+
+    boolean isAdaptief() {
+        return doelNanos > 0;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Wacht tot er nog een chunk tegelijk weggeschreven mag worden.
+     */
+    synchronized void begin() {
+        while (bezig >= gelijktijdig) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("De import is onderbroken", e);
+            }
+        }
+        bezig++;
+    }
+
+    /**
+     * Geeft de plek van een chunk vrij en past de instellingen aan op de tijd die de chunk nodig had.
+     */
+    synchronized void end(long begin, long einde) {
+        bezig--;
+        if (isAdaptief()) {
+            if (einde - begin > doelNanos) {
+                // Chunks die al bezig waren voor de laatste verlaging hebben daar niets van gemerkt, die tellen niet
+                // mee, anders halveren alle workers die tegelijk een trage chunk hadden na elkaar
+                if (begin - laatsteVerlaging >= 0 && (batchSize > minBatchSize || gelijktijdig > 1)) {
+                    batchSize = Math.max(minBatchSize, batchSize / 2);
+                    gelijktijdig = Math.max(1, gelijktijdig / 2);
+                    laatsteVerlaging = einde;
+                    metrics.increment(ImportMetrics.ADAPTIEF_VERLAAGD, 1);
+                }
+                goed = 0;
+            } else {
+                batchSize = Math.min(maxBatchSize, batchSize + minBatchSize);
+                if (++goed >= gelijktijdig) {
+                    gelijktijdig = Math.min(maxGelijktijdig, gelijktijdig + 1);
+                    goed = 0;
+                }
+            }
+        }
+        notifyAll();
+    }
+
+    synchronized String getSamenvatting() {
+        return String.format("Adaptieve chunks: %d keer verlaagd, chunk grootte nu %d (%d-%d), %d van %d chunk(s) tegelijk",
+                metrics.getCount(ImportMetrics.ADAPTIEF_VERLAAGD), batchSize, minBatchSize, maxBatchSize, gelijktijdig, maxGelijktijdig);
+    }
+}
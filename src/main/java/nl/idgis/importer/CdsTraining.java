@@ -0,0 +1,64 @@
+package nl.idgis.importer;
+
+import nl.idgis.Main;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Trainingsrun voor het AppCDS archief (./gradlew cdsArchive): start de Spring context zoals {@link Main} dat doet
+ * en parst en valideert een klein GIO, zonder database. De klassen die daarbij geladen worden komen in het archief,
+ * zodat een echte import die niet opnieuw hoeft te laden en te verifieren.
+ */
+public class CdsTraining {
+
+    private static final String GIO = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<geo:GeoInformatieObjectVaststelling xmlns:geo=\"https://standaarden.overheid.nl/stop/imop/geo/\""
+            + " xmlns:basisgeo=\"http://www.geostandaarden.nl/basisgeometrie/1.0\" xmlns:gml=\"http://www.opengis.net/gml/3.2\">\n"
+            + "<geo:vastgesteldeVersie><geo:GeoInformatieObjectVersie><geo:FRBRWork>/join/id/regdata/cds/training</geo:FRBRWork>"
+            + "<geo:FRBRExpression>/join/id/regdata/cds/training/nld@2021-01-01;1</geo:FRBRExpression><geo:locaties>\n"
+            + "%s</geo:locaties></geo:GeoInformatieObjectVersie></geo:vastgesteldeVersie>\n"
+            + "</geo:GeoInformatieObjectVaststelling>\n";
+
+    private static final String LOCATIE = "<geo:Locatie><geo:naam>Training %1$d</geo:naam><geo:geometrie><basisgeo:Geometrie>"
+            + "<basisgeo:id>training-%1$d</basisgeo:id><basisgeo:geometrie>"
+            + "<gml:Polygon gml:id=\"id-training-%1$d\" srsName=\"urn:ogc:def:crs:EPSG::28992\"><gml:exterior><gml:LinearRing>"
+            + "<gml:posList srsDimension=\"2\">155000.0 46300%1$d.0 155010.0 46300%1$d.0 155010.0 46301%1$d.0 155000.0 46300%1$d.0</gml:posList>"
+            + "</gml:LinearRing></gml:exterior></gml:Polygon></basisgeo:geometrie></basisgeo:Geometrie></geo:geometrie></geo:Locatie>\n";
+
+    public static void main(String[] args) throws IOException {
+        // Als export naar bestanden, zonder database; er wordt niets naar de directory geschreven
+        File file = File.createTempFile("cds-training", ".gml");
+        System.setProperty("IMPORT_OUTPUT_DIR", file.getParent());
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Main.class)) {
+            StringBuilder locaties = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                locaties.append(String.format(LOCATIE, i));
+            }
+            Files.write(file.toPath(), String.format(GIO, locaties).getBytes(StandardCharsets.UTF_8));
+
+            new GioValidator().valideer(file);
+            ImportMetrics metrics = new ImportMetrics(MetricsRegistry.NOOP, file.getName());
+            int[] aantal = new int[1];
+            ImportMetrics.Scope scope = metrics.bind();
+            try {
+                context.getBean(GioParser.class).parse(file, locatie -> aantal[0]++);
+            } finally {
+                scope.close();
+            }
+            metrics.stop();
+            metrics.toText();
+
+            // De JDBC driver wordt bij een import altijd geladen
+            Class.forName("org.postgresql.Driver");
+            System.out.printf("CDS training klaar: %d locaties geparst%n", aantal[0]);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("De PostgreSQL driver staat niet op het classpath", e);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package nl.idgis.importer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Bulk import: de locaties worden met COPY in een tijdelijke staging tabel gestreamd, waarna bzk.geometrie,
+ * bzk.locatie en bzk.groep_locatie ieder met een enkel set-based statement gevuld worden. Alle stappen moeten
+ * binnen dezelfde transactie uitgevoerd worden, de staging tabel bestaat alleen binnen die transactie.
+ */
+class CopyBulkLoader {
+
+    private static final String STAGING_TABLE = "gio_import_staging";
+
+    private final ImportMetrics metrics;
+    private final Geometrietype.Check geometrietype;
+
+    CopyBulkLoader(ImportMetrics metrics, boolean validate) {
+        this.metrics = metrics;
+        this.geometrietype = new Geometrietype.Check(validate);
+    }
+
+    /**
+     * Maakt de staging tabel aan en vult deze met alle locaties uit het GIO bestand.
+     */
+    GioMetadata stage(Connection conn, File file, GioParser parser) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            // Tijdelijke tabellen worden niet in de WAL geschreven, net als unlogged tabellen. De import draait in
+            // een transactie, bij de commit of rollback daarvan verdwijnt de tabel vanzelf.
+            statement.execute("DROP TABLE IF EXISTS pg_temp." + STAGING_TABLE);
+            statement.execute(
+                    "CREATE TEMPORARY TABLE " + STAGING_TABLE + " (" +
+                    "volgnummer integer NOT NULL, geometrie_id text NOT NULL, naam text, gml text NOT NULL, uuid text NOT NULL, " +
+                    "geometrietype text NOT NULL) " +
+                    "ON COMMIT DROP");
+        }
+
+        String copySql = "COPY " + STAGING_TABLE + " (volgnummer, geometrie_id, naam, gml, uuid, geometrietype) FROM STDIN";
+        PGConnection pgConnection = conn.unwrap(PGConnection.class);
+
+        GioMetadata metadata;
+        long start = System.nanoTime();
+        ImportMetrics.Scope scope = metrics.bind();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new PGCopyOutputStream(pgConnection, copySql, 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+            int[] volgnummer = {0};
+            metadata = parser.parse(file, locatie -> {
+                geometrietype.check(locatie);
+                try {
+                    writer.write(Integer.toString(volgnummer[0]++));
+                    writer.write('\t');
+                    writeCopyValue(writer, locatie.getId());
+                    writer.write('\t');
+                    writeCopyValue(writer, locatie.getNaam());
+                    writer.write('\t');
+                    writeCopyValue(writer, locatie.getGml());
+                    writer.write('\t');
+                    writer.write(UUID.randomUUID().toString().replace("-", "").toLowerCase());
+                    writer.write('\t');
+                    writer.write(locatie.getGeometrietype());
+                    writer.write('\n');
+                    metrics.increment(ImportMetrics.LOCATIES, 1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Er ging iets mis bij het vullen van de staging tabel", e);
+        } finally {
+            scope.close();
+        }
+        // Inclusief het parsen, dat gebeurt tijdens de COPY
+        metrics.record(ImportMetrics.DB_STAGING_COPY, System.nanoTime() - start);
+
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("ANALYZE " + STAGING_TABLE);
+        }
+
+        return metadata;
+    }
+
+    /**
+     * Insert de geometrieen die nog niet in bzk.geometrie staan, met voor iedere nieuwe geometrie een locatie.
+     * Geeft het aantal nieuwe locaties terug.
+     */
+    int insertGeometrieenEnLocaties(Connection conn, LocalDate dateStart, int regelingId, String bgCode) throws SQLException {
+        String sql =
+                "WITH eerste AS (" +
+                "SELECT DISTINCT ON (geometrie_id) geometrie_id, naam, gml, uuid, geometrietype FROM " + STAGING_TABLE + " " +
+                "ORDER BY geometrie_id, volgnummer" +
+                "), geometrie AS (" +
+                "INSERT INTO bzk.geometrie (naam, geometrie_id, geometrie) " +
+                "SELECT e.naam, e.geometrie_id, ST_GEOMFROMGML(e.gml, 28992) FROM eerste e " +
+                "WHERE NOT EXISTS (SELECT 1 FROM bzk.geometrie g WHERE g.geometrie_id = e.geometrie_id) " +
+                "RETURNING id, geometrie_id" +
+                "), getypeerd AS (" +
+                "SELECT g.id, e.naam, e.uuid, e.geometrietype " +
+                "FROM geometrie g JOIN eerste e ON e.geometrie_id = g.geometrie_id" +
+                ") " +
+                "INSERT INTO bzk.locatie (naam, datum_begin, ind_groep_jn, regeling_id, geometrietype, geometrie_id, identificatie) " +
+                "SELECT naam, ?, false, ?, geometrietype, id, " + LocatieBatchWriter.IDENTIFICATIE_SQL + " " +
+                "FROM getypeerd";
+
+        // Een andere import kan dezelfde geometrie_ids anders ook invoegen, zie LocatieBatchWriter
+        long lockStart = System.nanoTime();
+        try (Statement statement = conn.createStatement()) {
+            statement.executeQuery(LocatieBatchWriter.IMPORT_LOCK_SQL).close();
+        }
+        metrics.record(ImportMetrics.DB_GEOMETRIE_LOCK, System.nanoTime() - lockStart);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(dateStart));
+            ps.setInt(2, regelingId);
+            ps.setString(3, bgCode);
+
+            long start = System.nanoTime();
+            int nieuw = ps.executeUpdate();
+            metrics.record(ImportMetrics.DB_GEOMETRIE_INSERT, System.nanoTime() - start);
+            metrics.increment(ImportMetrics.GEOMETRIEEN_NIEUW, nieuw);
+            return nieuw;
+        }
+    }
+
+    /**
+     * Het geometrietype van de eerste locatie in het GIO, dat wordt ook het type van de groep. Controleert of er
+     * voor iedere locatie in de staging tabel een locatie in de database is.
+     */
+    String getGroepGeometryType(Connection conn) throws SQLException {
+        String missingSql =
+                "SELECT s.geometrie_id FROM " + STAGING_TABLE + " s " +
+                "WHERE NOT EXISTS (" +
+                "SELECT 1 FROM bzk.geometrie g JOIN bzk.locatie l ON l.geometrie_id = g.id WHERE g.geometrie_id = s.geometrie_id" +
+                ") LIMIT 1";
+        try (Statement statement = conn.createStatement(); ResultSet rs = statement.executeQuery(missingSql)) {
+            if (rs.next()) {
+                throw new IllegalArgumentException("Kon de id van de locatie bij geometrie '" + rs.getString(1) + "' niet ophalen");
+            }
+        }
+
+        if (geometrietype.getGeometrietype() == null) {
+            throw new IllegalArgumentException("Kon het geometrietype van de locatie niet bepalen");
+        }
+        return geometrietype.getGeometrietype();
+    }
+
+    int linkLocatiesToGroep(Connection conn, int locatieGroepId) throws SQLException {
+        String sql =
+                "INSERT INTO bzk.groep_locatie (locatiegroep_id, locatie_id) " +
+                "SELECT ?, (" +
+                "SELECT l.id FROM bzk.geometrie g JOIN bzk.locatie l ON l.geometrie_id = g.id " +
+                "WHERE g.geometrie_id = s.geometrie_id ORDER BY g.id DESC, l.id LIMIT 1" +
+                ") FROM " + STAGING_TABLE + " s ORDER BY s.volgnummer";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, locatieGroepId);
+
+            long start = System.nanoTime();
+            int aantal = ps.executeUpdate();
+            metrics.record(ImportMetrics.DB_GROEP_LINK, System.nanoTime() - start);
+            return aantal;
+        }
+    }
+
+    // Tekstformaat van COPY: backslash, tab en regeleinden moeten ge-escaped worden
+    private static void writeCopyValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("\\N");
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                default:
+                    writer.write(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package nl.idgis.importer;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Een parser die gelijke geometrieen onder verschillende basisgeo:id's binnen een GIO samenvoegt. Tijdens het
+ * parsen wordt van iedere geometrie een {@link GeometrieHash} bijgehouden. Komt een geometrie die al eerder langs
+ * kwam opnieuw voor onder een ander id, dan wordt de locatie doorgegeven met het id van de eerste. De import, de
+ * bulk import en de dry run behandelen die daarna als een dubbel id: er komt een enkele rij in bzk.geometrie en een
+ * enkele locatie, die in de groep voor beide locaties gekoppeld wordt.
+ *
+ * Het id van de latere locatie komt daardoor niet in bzk.geometrie. De index geldt alleen voor een import; bij het
+ * verdergaan na een checkpoint kent de index de al verwerkte locaties niet.
+ */
+public class DeduplicatingGioParser implements GioParser {
+
+    static final String DUPLICATEN = "geometrieen.duplicaat";
+
+    private final GioParser parser;
+
+    public DeduplicatingGioParser(GioParser parser) {
+        this.parser = parser;
+    }
+
+    @Override
+    public GioMetadata parse(File file, int overslaan, Consumer<GioLocatie> consumer) {
+        ImportMetrics metrics = ImportMetrics.current();
+        Map<GeometrieHash, String> index = new HashMap<>();
+        int[] duplicaten = new int[1];
+
+        GioMetadata metadata = parser.parse(file, overslaan, locatie -> {
+            String eerste = index.putIfAbsent(GeometrieHash.of(locatie.getGml()), locatie.getId());
+            if (eerste == null || eerste.equals(locatie.getId())) {
+                consumer.accept(locatie);
+            } else {
+                duplicaten[0]++;
+                consumer.accept(new GioLocatie(eerste, locatie.getNaam(), locatie.getGml()));
+            }
+        });
+
+        metrics.increment(DUPLICATEN, duplicaten[0]);
+        System.out.printf(Locale.ROOT, "Gelijke geometrieen samengevoegd: %d locaties met een eerder voorkomende geometrie onder een ander id, %d verschillende geometrieen%n",
+                duplicaten[0], index.size());
+
+        return metadata;
+    }
+}
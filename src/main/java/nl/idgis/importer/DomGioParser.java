@@ -0,0 +1,198 @@
+package nl.idgis.importer;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class DomGioParser implements GioParser {
+
+    @Override
+    public GioMetadata parse(File file, int overslaan, Consumer<GioLocatie> consumer) {
+        try {
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            DocumentBuilder db = dbf.newDocumentBuilder();
+            Document doc = db.parse(file);
+
+            GioMetadata metadata = readMetadata(doc);
+
+            // Geometrie + Locatie
+            Map<String, Element> gmlIndex = indexGmlIds(doc);
+            NodeList locaties = doc.getElementsByTagNameNS(GEO_NS, "Locatie");
+            for (int i = overslaan; i < locaties.getLength(); i++) {
+                consumer.accept(readLocatie((Element) locaties.item(i), gmlIndex));
+            }
+
+            return metadata;
+        } catch (ParserConfigurationException | SAXException | IOException | XPathExpressionException e) {
+            throw new IllegalStateException("Het GIO bestand kon niet gelezen worden: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    GioMetadata readMetadata(Document doc) throws XPathExpressionException {
+        XPath xPath = new XPathBuilder()
+            .xmlns("geo", GEO_NS)
+            .xmlns("gio", GIO_NS)
+            .build();
+
+        // Informatieobjectversie
+        GioMetadata metadata = new GioMetadata();
+        metadata.setFrbrWork(getText(xPath.compile("//geo:FRBRWork"), doc));
+        metadata.setFrbrExpression(getText(xPath.compile("//geo:FRBRExpression"), doc));
+        metadata.setAchtergrondVerwijzing(getText(xPath.compile("//gio:achtergrondVerwijzing"), doc));
+        metadata.setAchtergrondActualiteit(getText(xPath.compile("//gio:achtergrondActualiteit"), doc));
+        metadata.setNauwkeurigheid(getText(xPath.compile("//gio:nauwkeurigheid"), doc));
+
+        return metadata;
+    }
+
+    /**
+     * Zoekt in een keer alle elementen met een gml:id op. Een XPath als .//*[@gml:id='...'] per locatie doorzoekt
+     * telkens de hele subtree, met deze index is het opzoeken van de geometrie van een locatie constant.
+     */
+    static Map<String, Element> indexGmlIds(Document doc) {
+        Map<String, Element> index = new HashMap<>();
+        Deque<Element> stack = new ArrayDeque<>();
+        stack.push(doc.getDocumentElement());
+        while (!stack.isEmpty()) {
+            Element element = stack.pop();
+            Attr gmlId = element.getAttributeNodeNS(GML_NS, "id");
+            if (gmlId != null) {
+                index.putIfAbsent(gmlId.getValue(), element);
+            }
+
+            for (Node child = element.getLastChild(); child != null; child = child.getPreviousSibling()) {
+                if (child.getNodeType() == Node.ELEMENT_NODE) {
+                    stack.push((Element) child);
+                }
+            }
+        }
+
+        return index;
+    }
+
+    GioLocatie readLocatie(Element locatie, Map<String, Element> gmlIndex) {
+        Element naam = getNaam(locatie);
+        Node id = locatie.getElementsByTagNameNS(BASISGEO_NS, "id").item(0);
+        if (id == null) {
+            throw new IllegalStateException("Locatie '" + (naam != null ? naam.getTextContent() : null) + "' heeft geen basisgeo:id");
+        }
+
+        Element gmlNode = getGeometrie(locatie, id.getTextContent(), gmlIndex);
+        if (gmlNode == null) {
+            throw new IllegalStateException("Geen GML geometrie gevonden voor locatie met id '" + id.getTextContent() + "'");
+        }
+
+        return new GioLocatie(id.getTextContent(), naam != null ? naam.getTextContent() : null, getGml(gmlNode));
+    }
+
+    static Element getNaam(Element locatie) {
+        for (Node child = locatie.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && GEO_NS.equals(child.getNamespaceURI()) && "naam".equals(child.getLocalName())) {
+                return (Element) child;
+            }
+        }
+        return null;
+    }
+
+    static Element getGeometrie(Element locatie, String id, Map<String, Element> gmlIndex) {
+        String gmlId = "id-" + id;
+        Element gmlNode = gmlIndex.get(gmlId);
+        if (gmlNode != null && !isDescendant(gmlNode, locatie)) {
+            // Hetzelfde gml:id komt vaker in het GIO voor, zoek het dan alleen binnen deze locatie op
+            gmlNode = findGmlId(locatie, gmlId);
+        }
+        return gmlNode;
+    }
+
+    private static Element findGmlId(Element element, String gmlId) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                Element childElement = (Element) child;
+                if (gmlId.equals(childElement.getAttributeNS(GML_NS, "id"))) {
+                    return childElement;
+                }
+
+                Element found = findGmlId(childElement, gmlId);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isDescendant(Node node, Node ancestor) {
+        for (Node parent = node.getParentNode(); parent != null; parent = parent.getParentNode()) {
+            if (parent == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getText(XPathExpression expression, Document doc) throws XPathExpressionException {
+        Node node = (Node) expression.evaluate(doc, XPathConstants.NODE);
+        return node != null ? node.getTextContent() : null;
+    }
+
+    String getGml(Element gmlNode) {
+        return GmlWriter.write(gmlNode);
+    }
+
+    static class XPathBuilder {
+        private final Map<String, String> namespaces = new HashMap<>();
+
+        public XPathBuilder xmlns(String prefix, String namespaceURI) {
+            namespaces.put(prefix, namespaceURI);
+            return this;
+        }
+
+        public XPath build() {
+            XPath xp = XPathFactory.newInstance().newXPath();
+            xp.setNamespaceContext(new NamespaceContext() {
+
+                @Override
+                public String getNamespaceURI(String prefix) {
+                    return namespaces.get(prefix);
+                }
+
+                @Override
+                public String getPrefix(String namespaceURI) {
+                    return getPrefixes(namespaceURI).next();
+                }
+
+                @Override
+                public Iterator<String> getPrefixes(String namespaceURI) {
+                    return namespaces.entrySet().stream()
+                        .filter(entry -> entry.getValue().equals(namespaceURI))
+                        .map(Map.Entry::getKey)
+                        .iterator();
+                }
+            });
+
+            return xp;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package nl.idgis.importer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Houdt tijdens een import per basisgeo:id de id van de geometrie en van de eerste locatie daarbij bij, zowel voor
+ * geometrieen die al in de database stonden als voor geometrieen die tijdens de import zijn toegevoegd. Zo hoeft
+ * iedere geometrie_id maar een keer opgezocht te worden.
+ *
+ * Een basisgeo:id is een UUID, die wordt als twee longs opgeslagen in een open addressing tabel zonder een String of
+ * Integer per entry. Ids die geen UUID in de gebruikelijke notatie zijn komen in een gewone map terecht.
+ * Kan door meerdere workers tegelijk gebruikt worden.
+ */
+class GeometrieCache {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private long[] msbs = new long[INITIAL_CAPACITY];
+    private long[] lsbs = new long[INITIAL_CAPACITY];
+    // (geometrie id << 32) | locatie id, 0 betekent een lege plek
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private final Map<String, Long> overig = new HashMap<>();
+
+    /**
+     * Geeft de id van de locatie terug, of 0 als de geometrie_id niet bekend is.
+     */
+    synchronized int getLocatieId(String geometrieId) {
+        return (int) get(geometrieId);
+    }
+
+    synchronized int getGeometrieId(String geometrieId) {
+        return (int) (get(geometrieId) >>> 32);
+    }
+
+    synchronized boolean contains(String geometrieId) {
+        return get(geometrieId) != 0;
+    }
+
+    /**
+     * Voegt de geometrie toe als die nog niet bekend is, een eerder gevonden locatie blijft staan.
+     */
+    synchronized void putIfAbsent(String geometrieId, int geometriePk, int locatieId) {
+        if (geometriePk <= 0 || locatieId <= 0) {
+            throw new IllegalArgumentException("Ongeldige id voor geometrie '" + geometrieId + "': " + geometriePk + "/" + locatieId);
+        }
+        long value = ((long) geometriePk << 32) | locatieId;
+
+        if (!isUuid(geometrieId)) {
+            overig.putIfAbsent(geometrieId, value);
+            return;
+        }
+
+        long msb = parseHex(geometrieId, 0, 8) << 32 | parseHex(geometrieId, 9, 13) << 16 | parseHex(geometrieId, 14, 18);
+        long lsb = parseHex(geometrieId, 19, 23) << 48 | parseHex(geometrieId, 24, 36);
+        int slot = find(msb, lsb);
+        if (values[slot] == 0) {
+            msbs[slot] = msb;
+            lsbs[slot] = lsb;
+            values[slot] = value;
+            if (++size * 2 > values.length) {
+                resize();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return size + overig.size();
+    }
+
+    private long get(String geometrieId) {
+        if (!isUuid(geometrieId)) {
+            Long value = overig.get(geometrieId);
+            return value != null ? value : 0;
+        }
+
+        long msb = parseHex(geometrieId, 0, 8) << 32 | parseHex(geometrieId, 9, 13) << 16 | parseHex(geometrieId, 14, 18);
+        long lsb = parseHex(geometrieId, 19, 23) << 48 | parseHex(geometrieId, 24, 36);
+        return values[find(msb, lsb)];
+    }
+
+    // Lineair zoeken vanaf de hash, geeft de plek van de sleutel of de eerste lege plek terug
+    private int find(long msb, long lsb) {
+        int mask = values.length - 1;
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash >>> 32) & mask;
+        while (values[slot] != 0 && (msbs[slot] != msb || lsbs[slot] != lsb)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oudeMsbs = msbs;
+        long[] oudeLsbs = lsbs;
+        long[] oudeValues = values;
+
+        msbs = new long[oudeValues.length * 2];
+        lsbs = new long[oudeValues.length * 2];
+        values = new long[oudeValues.length * 2];
+        for (int i = 0; i < oudeValues.length; i++) {
+            if (oudeValues[i] != 0) {
+                int slot = find(oudeMsbs[i], oudeLsbs[i]);
+                msbs[slot] = oudeMsbs[i];
+                lsbs[slot] = oudeLsbs[i];
+                values[slot] = oudeValues[i];
+            }
+        }
+    }
+
+    // Alleen de notatie die UUID.toString() ook oplevert, zodat twee verschillende strings nooit dezelfde sleutel krijgen
+    private static boolean isUuid(String value) {
+        if (value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            result = result << 4 | Character.digit(value.charAt(i), 16);
+        }
+        return result;
+    }
+}
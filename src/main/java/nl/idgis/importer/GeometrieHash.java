@@ -0,0 +1,135 @@
+package nl.idgis.importer;
+
+/**
+ * Hash van de inhoud van een geometrie, om gelijke geometrieen onder verschillende basisgeo:id's te herkennen.
+ *
+ * De hash gaat over een genormaliseerde stroom: de namen van de GML elementen (begin en einde, zonder prefix), de
+ * srsName en de coordinaten als getal. Attributen als gml:id, witruimte en de schrijfwijze van de getallen
+ * (155000 of 155000.000) tellen dus niet mee. Er worden twee XXH64 hashes met een verschillende seed over dezelfde
+ * stroom berekend, zodat twee verschillende geometrieen praktisch nooit als gelijk gezien worden.
+ */
+final class GeometrieHash {
+
+    private static final ThreadLocal<XxHash64[]> HASHES = ThreadLocal.withInitial(() -> new XxHash64[]{
+            new XxHash64(0), new XxHash64(0x5DEECE66DL)});
+
+    private static final long BEGIN = 1L << 32;
+    private static final long EINDE = 2L << 32;
+    private static final long SRS = 3L << 32;
+
+    private final long hash1;
+    private final long hash2;
+
+    private GeometrieHash(long hash1, long hash2) {
+        this.hash1 = hash1;
+        this.hash2 = hash2;
+    }
+
+    static GeometrieHash of(String gml) {
+        XxHash64[] hashes = HASHES.get();
+        hashes[0].reset();
+        hashes[1].reset();
+        new Normalisatie(gml, hashes[0], hashes[1]).run();
+        return new GeometrieHash(hashes[0].digest(), hashes[1].digest());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GeometrieHash)) {
+            return false;
+        }
+        GeometrieHash that = (GeometrieHash) o;
+        return hash1 == that.hash1 && hash2 == that.hash2;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", hash1, hash2);
+    }
+
+    private static class Normalisatie {
+
+        private final String gml;
+        private final XxHash64 hash1;
+        private final XxHash64 hash2;
+
+        Normalisatie(String gml, XxHash64 hash1, XxHash64 hash2) {
+            this.gml = gml;
+            this.hash1 = hash1;
+            this.hash2 = hash2;
+        }
+
+        void run() {
+            String element = null;
+            int i = 0;
+            while (i < gml.length()) {
+                int tag = gml.indexOf('<', i);
+                if (tag < 0) {
+                    tag = gml.length();
+                }
+                if (tag > i && ("posList".equals(element) || "pos".equals(element) || "coordinates".equals(element))) {
+                    getallen(i, tag);
+                }
+                if (tag == gml.length()) {
+                    break;
+                }
+
+                int einde = gml.indexOf('>', tag);
+                if (einde < 0) {
+                    throw new IllegalArgumentException("Ongeldige GML, een tag wordt niet afgesloten");
+                }
+                if (gml.charAt(tag + 1) == '/') {
+                    update(EINDE | (GmlSimplifier.localName(gml, tag + 2, einde).hashCode() & 0xFFFFFFFFL));
+                    element = null;
+                } else if (gml.charAt(tag + 1) != '?' && gml.charAt(tag + 1) != '!') {
+                    element = GmlSimplifier.localName(gml, tag + 1, einde);
+                    update(BEGIN | (element.hashCode() & 0xFFFFFFFFL));
+                    srsName(tag, einde);
+                    if (gml.charAt(einde - 1) == '/') {
+                        update(EINDE | (element.hashCode() & 0xFFFFFFFFL));
+                        element = null;
+                    }
+                }
+                i = einde + 1;
+            }
+        }
+
+        private void srsName(int tag, int einde) {
+            int srsName = GmlSimplifier.attribuut(gml, tag, einde, "srsName");
+            if (srsName >= 0) {
+                update(SRS | (gml.substring(srsName, gml.indexOf('"', srsName)).hashCode() & 0xFFFFFFFFL));
+            }
+        }
+
+        // pos, posList en GML 2 coordinates "x,y x,y" geven dezelfde stroom van getallen
+        private void getallen(int start, int einde) {
+            int i = start;
+            while (i < einde) {
+                char c = gml.charAt(i);
+                if (c == ',' || Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                int getal = i;
+                while (i < einde && gml.charAt(i) != ',' && !Character.isWhitespace(gml.charAt(i))) {
+                    i++;
+                }
+                // + 0.0 maakt van -0.0 gewoon 0.0
+                update(Double.doubleToLongBits(GmlSimplifier.parse(gml, getal, i) + 0.0));
+            }
+        }
+
+        private void update(long waarde) {
+            hash1.update(waarde);
+            hash2.update(waarde);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package nl.idgis.importer;
+
+/**
+ * Het geometrietype van een locatie (vlak, lijn of punt), bepaald aan de hand van de naam van het GML element.
+ * Dit is dezelfde indeling als die van ST_GEOMETRYTYPE na ST_GEOMFROMGML, zonder dat daar een round trip voor
+ * nodig is.
+ */
+final class Geometrietype {
+
+    static final String VLAK = "vlak";
+    static final String LIJN = "lijn";
+    static final String PUNT = "punt";
+
+    private Geometrietype() {
+    }
+
+    /**
+     * Het geometrietype bij de lokale naam van een GML element, of null als het geen bekende geometrie is.
+     */
+    static String vanElement(String localName) {
+        switch (localName) {
+            case "Polygon":
+            case "MultiPolygon":
+            case "Surface":
+            case "MultiSurface":
+            case "CompositeSurface":
+            case "PolyhedralSurface":
+            case "TriangulatedSurface":
+            case "Tin":
+                return VLAK;
+            case "LineString":
+            case "MultiLineString":
+            case "Curve":
+            case "MultiCurve":
+            case "CompositeCurve":
+                return LIJN;
+            case "Point":
+            case "MultiPoint":
+                return PUNT;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Het geometrietype van een GML fragment zoals {@link GmlWriter} dat schrijft, op basis van het eerste element.
+     */
+    static String vanGml(String gml) {
+        int start = gml.indexOf('<');
+        if (start < 0) {
+            return null;
+        }
+        int einde = start + 1;
+        while (einde < gml.length() && " \t\r\n/>".indexOf(gml.charAt(einde)) < 0) {
+            einde++;
+        }
+        String naam = gml.substring(start + 1, einde);
+        return vanElement(naam.substring(naam.indexOf(':') + 1));
+    }
+
+    /**
+     * Houdt het geometrietype van de locaties van een GIO bij. Het type van de eerste locatie wordt het type van de
+     * groep, een locatie met een onbekend type is een fout. Een locatie met een ander type is alleen een fout als
+     * het GIO gevalideerd wordt, zonder validatie wordt zo'n GIO net als voorheen geimporteerd.
+     */
+    static class Check {
+
+        private final boolean eenType;
+        private String geometrietype;
+        private String eerste;
+
+        Check(boolean eenType) {
+            this.eenType = eenType;
+        }
+
+        void check(GioLocatie locatie) {
+            String type = locatie.getGeometrietype();
+            if (type == null) {
+                throw new IllegalArgumentException("Onbekend geometrietype bij locatie met id '" + locatie.getId() + "'");
+            }
+            if (geometrietype == null) {
+                geometrietype = type;
+                eerste = locatie.getId();
+            } else if (eenType && !geometrietype.equals(type)) {
+                throw new IllegalArgumentException("Het GIO bevat locaties met verschillende geometrietypen: '" + eerste + "' is een "
+                        + geometrietype + ", '" + locatie.getId() + "' een " + type);
+            }
+        }
+
+        /**
+         * Het type van de eerste gecontroleerde locatie, of null als er nog geen locatie gecontroleerd is.
+         */
+        String getGeometrietype() {
+            return geometrietype;
+        }
+    }
+}
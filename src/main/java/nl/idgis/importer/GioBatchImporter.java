@@ -0,0 +1,86 @@
+package nl.idgis.importer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Importeert alle GIO's uit een manifest in een enkel proces, zodat de connection pool, de opgezochte
+ * regelingversies en de opgewarmde JIT gedeeld worden. Iedere GIO heeft een eigen transactie. Gaat een
+ * GIO mis, dan worden de overige GIO's gewoon geimporteerd en volgt na afloop een foutmelding.
+ *
+ * Met import.files.parallel worden GIO's tegelijk geimporteerd. Twee GIO's met dezelfde geometrie_id kunnen die
+ * dan niet allebei invoegen, zie de locks in LocatieBatchWriter. Schrijft een GIO in een enkele transactie, dan
+ * wacht het daarvoor op de andere imports; met import.threads groter dan 1 lopen de GIO's echt tegelijk.
+ */
+public class GioBatchImporter {
+
+    private final GioImporter gioImporter;
+    private final ImportOptions options;
+    private final String defaultExpression;
+
+    public GioBatchImporter(GioImporter gioImporter, ImportOptions options, String defaultExpression) {
+        this.gioImporter = gioImporter;
+        this.options = options;
+        this.defaultExpression = defaultExpression;
+    }
+
+    public void importManifest(File manifest) {
+        importAll(GioManifest.read(manifest, defaultExpression));
+    }
+
+    public void importAll(List<GioImportJob> jobs) {
+        System.out.printf("Bezig met het importeren van %d GIO's%n", jobs.size());
+
+        List<String> failures = new ArrayList<>();
+        int parallel = Math.min(options.getFileThreads(), jobs.size());
+        if (parallel <= 1) {
+            for (GioImportJob job : jobs) {
+                importJob(job, failures);
+            }
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(parallel,
+                    runnable -> new Thread(runnable, "gio-bestand-" + threadNumber.incrementAndGet()));
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (GioImportJob job : jobs) {
+                    futures.add(executor.submit(() -> importJob(job, failures)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("De import is onderbroken", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Er ging iets mis bij het importeren van de GIO's", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        System.out.printf("%d van de %d GIO's geimporteerd%n", jobs.size() - failures.size(), jobs.size());
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("De volgende GIO's konden niet geimporteerd worden: " + String.join(", ", failures));
+        }
+    }
+
+    private void importJob(GioImportJob job, List<String> failures) {
+        System.out.println("Bezig met het importeren van " + job);
+        try {
+            gioImporter.importGio(job);
+        } catch (RuntimeException e) {
+            System.err.println("Het importeren van " + job + " is mislukt: " + e.getMessage());
+            e.printStackTrace();
+            synchronized (failures) {
+                failures.add(job.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package nl.idgis.importer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * De locatieset van de vorige informatieobjectversie van een GIO (hetzelfde frbr_work), voor een delta import.
+ * Een locatie uit de nieuwe versie met een basisgeo:id uit de vorige versie en dezelfde SHA-256 hash van de GML is
+ * ongewijzigd, de locatie id daarvan wordt direct hergebruikt zonder de database te raadplegen. Alleen nieuwe en
+ * gewijzigde geometrieen worden weggeschreven.
+ *
+ * De hashes staan per geometrie in bzk.gio_geometrie_hash. Geometrieen die zonder delta zijn geimporteerd hebben
+ * nog geen hash, die worden in de database met ST_OrderingEquals met de nieuwe GML vergeleken. Een hash wordt
+ * alleen opgeslagen voor een geometrie die bij de import is ingevoegd of zo gelijk bevonden is. De tabel wordt
+ * aangemaakt met de migratie {@value #MIGRATIE} uit de resources.
+ *
+ * Een gewijzigde geometrie krijgt een nieuwe rij in bzk.geometrie met dezelfde geometrie_id, zodat de vorige versie
+ * van het GIO naar de oude geometrie blijft wijzen. Bij het opzoeken op geometrie_id wint daarom de nieuwste rij.
+ */
+class GioDelta {
+
+    static final String HASH_TABLE = "bzk.gio_geometrie_hash";
+    static final String MIGRATIE = "db/migration/V1__gio_geometrie_hash.sql";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is niet beschikbaar", e);
+        }
+    });
+
+    enum Status {
+        ONGEWIJZIGD, GEWIJZIGD, NIEUW,
+        // Wel in de vorige versie, maar zonder hash: de geometrie moet nog vergeleken worden, zie bevestig
+        ONBEKEND
+    }
+
+    private final String frbrWork;
+    private final Map<String, Vorige> vorige;
+
+    private final AtomicInteger ongewijzigd = new AtomicInteger();
+    private final AtomicInteger gewijzigd = new AtomicInteger();
+    private final AtomicInteger nieuw = new AtomicInteger();
+
+    GioDelta(String frbrWork, Map<String, Vorige> vorige) {
+        this.frbrWork = frbrWork;
+        this.vorige = vorige;
+    }
+
+    /**
+     * Controleert of de tabel met hashes bestaat, de importer maakt zelf geen tabellen aan.
+     */
+    static void checkHashTable(JdbcTemplate jdbcTemplate) {
+        String tabel = jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, HASH_TABLE);
+        if (tabel == null) {
+            throw new IllegalStateException("De tabel " + HASH_TABLE + " voor import.delta bestaat niet, voer eerst de migratie " + MIGRATIE + " uit");
+        }
+    }
+
+    static GioDelta load(JdbcTemplate jdbcTemplate, File file) {
+        String frbrWork = readFrbrWork(file);
+        if (frbrWork == null) {
+            throw new IllegalArgumentException("Geen geo:FRBRWork gevonden in " + file.getName() + ", een delta import is niet mogelijk");
+        }
+
+        String sql =
+                "SELECT g.geometrie_id, g.id, l.id locatie_id, h.hash FROM bzk.groep_locatie gl " +
+                "JOIN bzk.locatie l ON l.id = gl.locatie_id " +
+                "JOIN bzk.geometrie g ON g.id = l.geometrie_id " +
+                "LEFT JOIN " + HASH_TABLE + " h ON h.geometrie_id = g.id " +
+                "WHERE gl.locatiegroep_id = (" +
+                "SELECT locatie_id FROM bzk.informatieobjectversie WHERE frbr_work = ? ORDER BY id DESC LIMIT 1" +
+                ")";
+
+        Map<String, Vorige> vorige = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            vorige.putIfAbsent(rs.getString("geometrie_id"), new Vorige(rs.getInt("id"), rs.getInt("locatie_id"), rs.getBytes("hash")));
+        }, frbrWork);
+
+        if (vorige.isEmpty()) {
+            System.out.printf("Geen vorige versie gevonden van %s, alle locaties worden als nieuw behandeld%n", frbrWork);
+        } else {
+            System.out.printf("Vorige versie van %s heeft %d geometrieen%n", frbrWork, vorige.size());
+        }
+
+        return new GioDelta(frbrWork, vorige);
+    }
+
+    static byte[] hash(String gml) {
+        return SHA_256.get().digest(gml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Vergelijkt een locatie met de vorige versie. Een ongewijzigde locatie wordt direct aan de cache toegevoegd.
+     */
+    Status vergelijk(String geometrieId, byte[] hash, GeometrieCache cache) {
+        Vorige locatie = vorige.get(geometrieId);
+        if (locatie == null) {
+            nieuw.incrementAndGet();
+            return Status.NIEUW;
+        }
+        if (locatie.hash == null) {
+            return Status.ONBEKEND;
+        }
+        if (!Arrays.equals(locatie.hash, hash)) {
+            gewijzigd.incrementAndGet();
+            return Status.GEWIJZIGD;
+        }
+
+        cache.putIfAbsent(geometrieId, locatie.geometrieId, locatie.locatieId);
+        ongewijzigd.incrementAndGet();
+        return Status.ONGEWIJZIGD;
+    }
+
+    /**
+     * De id van de rij in bzk.geometrie van de vorige versie, om een locatie met status ONBEKEND te vergelijken.
+     */
+    int getVorigeGeometrieId(String geometrieId) {
+        return vorige.get(geometrieId).geometrieId;
+    }
+
+    /**
+     * Legt de uitkomst van de vergelijking van een locatie met status ONBEKEND vast. Een gelijke geometrie wordt net
+     * als een ongewijzigde locatie aan de cache toegevoegd.
+     */
+    void bevestig(String geometrieId, boolean gelijk, GeometrieCache cache) {
+        if (gelijk) {
+            Vorige locatie = vorige.get(geometrieId);
+            cache.putIfAbsent(geometrieId, locatie.geometrieId, locatie.locatieId);
+            ongewijzigd.incrementAndGet();
+        } else {
+            gewijzigd.incrementAndGet();
+        }
+    }
+
+    void printSamenvatting() {
+        System.out.printf("Ten opzichte van de vorige versie van %s: %d ongewijzigd, %d gewijzigd, %d nieuw%n",
+                frbrWork, ongewijzigd.get(), gewijzigd.get(), nieuw.get());
+    }
+
+    // Het frbr_work staat voor de locaties in het GIO, de rest van het bestand hoeft niet gelezen te worden
+    private static String readFrbrWork(File file) {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == START_ELEMENT && GioParser.GEO_NS.equals(reader.getNamespaceURI())) {
+                        if ("FRBRWork".equals(reader.getLocalName())) {
+                            return reader.getElementText();
+                        }
+                        if ("Locatie".equals(reader.getLocalName())) {
+                            return null;
+                        }
+                    }
+                }
+                return null;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("Het GIO bestand kon niet gelezen worden: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    static class Vorige {
+        private final int geometrieId;
+        private final int locatieId;
+        private final byte[] hash;
+
+        Vorige(int geometrieId, int locatieId, byte[] hash) {
+            this.geometrieId = geometrieId;
+            this.locatieId = locatieId;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package nl.idgis.importer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Een dry run van een import: alle locaties worden geparst en per chunk, net als bij de import, in bzk.geometrie
+ * opgezocht. Van de nieuwe geometrieen wordt de GML door PostGIS omgezet, zonder ze in te voegen, zodat ook
+ * geometrieen die PostGIS zou weigeren gevonden worden. Er wordt niets weggeschreven, de aanroeper draait dit in
+ * een read-only transactie.
+ *
+ * Op basis van de gemeten tijden wordt de duur van de echte import geschat. Dat blijft een schatting: het inserten
+ * van een geometrie, met de indexen, kost ongeveer {@value #INSERT_FACTOR} keer het omzetten van de GML en het
+ * koppelen van een chunk aan de groep ongeveer even lang als het opzoeken ervan.
+ */
+class GioDryRun implements Consumer<GioLocatie> {
+
+    private static final double INSERT_FACTOR = 2.0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImportOptions options;
+    private final ImportMetrics metrics;
+
+    private final Set<String> gezien = new HashSet<>();
+    private List<GioLocatie> chunk;
+    private int locaties;
+    private int nieuw;
+    private int bestaand;
+    private long consumerNanos;
+
+    GioDryRun(JdbcTemplate jdbcTemplate, ImportOptions options, ImportMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.options = options;
+        this.metrics = metrics;
+        this.chunk = new ArrayList<>(options.getBatchSize());
+    }
+
+    @Override
+    public void accept(GioLocatie locatie) {
+        long start = System.nanoTime();
+        locaties++;
+        metrics.increment(ImportMetrics.LOCATIES, 1);
+        if (gezien.add(locatie.getId())) {
+            chunk.add(locatie);
+            if (chunk.size() == options.getBatchSize()) {
+                lookup();
+            }
+        }
+        consumerNanos += System.nanoTime() - start;
+    }
+
+    long getConsumerNanos() {
+        return consumerNanos;
+    }
+
+    void finish() {
+        if (!chunk.isEmpty()) {
+            lookup();
+        }
+    }
+
+    void printVerslag(String naam, String geometrietype, List<String> waarschuwingen) {
+        double parse = seconden(ImportMetrics.PARSE);
+        double lookup = seconden(ImportMetrics.DB_GEOMETRIE_LOOKUP);
+        double database = 2 * lookup + INSERT_FACTOR * seconden(ImportMetrics.DB_GML_CONVERSIE);
+        // Met meer threads schrijven de workers parallel, terwijl de parser doorgaat
+        double geschat = options.getThreads() > 1 ? Math.max(parse, database / options.getThreads()) : parse + database;
+
+        StringBuilder verslag = new StringBuilder();
+        verslag.append(String.format(Locale.ROOT, "Dry run van %s, er is niets weggeschreven%n", naam));
+        verslag.append(String.format(Locale.ROOT, "  locaties:              %d (%d verschillende geometrieen)%n", locaties, gezien.size()));
+        verslag.append(String.format(Locale.ROOT, "  nieuwe geometrieen:    %d%n", nieuw));
+        verslag.append(String.format(Locale.ROOT, "  bestaande geometrieen: %d (worden hergebruikt)%n", bestaand));
+        verslag.append(String.format(Locale.ROOT, "  geometrietype:         %s%n", geometrietype));
+        verslag.append(String.format(Locale.ROOT, "  geschatte duur:        %.0f s (parsen %.1f s, database %.1f s, %d thread(s))%n",
+                geschat, parse, database, options.getThreads()));
+        if (!waarschuwingen.isEmpty()) {
+            verslag.append(String.format(Locale.ROOT, "  waarschuwingen:        %d (met import.validate wordt het GIO afgekeurd)%n",
+                    waarschuwingen.size()));
+            waarschuwingen.forEach(waarschuwing -> verslag.append("    ").append(waarschuwing.replace("\n", "\n    ")).append(System.lineSeparator()));
+        }
+        System.out.print(verslag);
+    }
+
+    private double seconden(String meting) {
+        LatencyHistogram histogram = metrics.getHistogram(meting);
+        return histogram != null ? histogram.getTotalNanos() / 1e9 : 0;
+    }
+
+    private void lookup() {
+        List<GioLocatie> locaties = chunk;
+        chunk = new ArrayList<>(options.getBatchSize());
+
+        String[] ids = locaties.stream().map(GioLocatie::getId).toArray(String[]::new);
+        Set<String> bestaande = new HashSet<>();
+        long start = System.nanoTime();
+        jdbcTemplate.query(
+                conn -> {
+                    PreparedStatement ps = conn.prepareStatement("SELECT geometrie_id FROM bzk.geometrie WHERE geometrie_id = ANY(?)");
+                    Array array = conn.createArrayOf("text", ids);
+                    ps.setArray(1, array);
+
+                    return ps;
+                },
+                rs -> {
+                    bestaande.add(rs.getString(1));
+                }
+        );
+        metrics.record(ImportMetrics.DB_GEOMETRIE_LOOKUP, System.nanoTime() - start);
+
+        List<String> gml = new ArrayList<>();
+        for (GioLocatie locatie : locaties) {
+            if (bestaande.contains(locatie.getId())) {
+                bestaand++;
+            } else {
+                nieuw++;
+                gml.add(locatie.getGml());
+            }
+        }
+        if (gml.isEmpty()) {
+            return;
+        }
+
+        // Dezelfde omzetting als bij het inserten, een geometrie die PostGIS weigert geeft hier al een fout
+        start = System.nanoTime();
+        jdbcTemplate.query(
+                conn -> {
+                    PreparedStatement ps = conn.prepareStatement("SELECT count(ST_GEOMFROMGML(gml, 28992)) FROM unnest(?) gml");
+                    Array array = conn.createArrayOf("text", gml.toArray());
+                    ps.setArray(1, array);
+
+                    return ps;
+                },
+                rs -> rs.next() ? rs.getInt(1) : 0
+        );
+        metrics.record(ImportMetrics.DB_GML_CONVERSIE, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,36 @@
+package nl.idgis.importer;
+
+import java.io.File;
+
+/**
+ * Een te importeren GIO bestand, met de naam van de groepslocatie en de expressie van de regelingversie.
+ */
+public class GioImportJob {
+
+    private final File file;
+    private final String gioName;
+    private final String regelingExpression;
+
+    public GioImportJob(File file, String gioName, String regelingExpression) {
+        this.file = file;
+        this.gioName = gioName;
+        this.regelingExpression = regelingExpression;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getGioName() {
+        return gioName;
+    }
+
+    public String getRegelingExpression() {
+        return regelingExpression;
+    }
+
+    @Override
+    public String toString() {
+        return file.getName() + " (" + gioName + ")";
+    }
+}
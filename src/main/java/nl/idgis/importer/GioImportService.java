@@ -0,0 +1,293 @@
+package nl.idgis.importer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service mode: een proces dat blijft draaien en import jobs via HTTP aanneemt, zodat niet iedere import opnieuw de
+ * JVM, de Spring context, de connection pool en de JIT hoeft op te starten. De jobs komen in een begrensde wachtrij
+ * en worden door import.files.parallel workers uitgevoerd met dezelfde {@link GioImporter}, en dus dezelfde
+ * connection pool en opgezochte regelingversies.
+ *
+ * <pre>
+ * POST /imports?file=/pad/naar/gio.gml&amp;gio=Naam[&amp;regeling=expressie]   202, de job wordt in de wachtrij gezet
+ * GET  /imports                                                        de status van de laatste jobs
+ * GET  /imports/{id}                                                   de status van een job, met de metingen als hij klaar is
+ * </pre>
+ *
+ * De parameters mogen ook als application/x-www-form-urlencoded body meegestuurd worden. Is de wachtrij vol, dan
+ * volgt 503 en moet de aanroeper het later opnieuw proberen.
+ */
+public class GioImportService {
+
+    private static final int MAX_JOBS = 1000;
+
+    enum Status { WACHTEND, BEZIG, GEREED, MISLUKT, GEANNULEERD }
+
+    private final GioImporter gioImporter;
+    private final String defaultExpression;
+    private final String host;
+    private final int port;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong volgnummer = new AtomicLong();
+    private final CountDownLatch gestopt = new CountDownLatch(1);
+    // De laatste jobs, de oudste valt eruit. Door de begrensde wachtrij zijn dat altijd afgeronde jobs.
+    private final Map<String, Job> jobs = new LinkedHashMap<String, Job>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_JOBS;
+        }
+    };
+    private HttpServer server;
+
+    public GioImportService(GioImporter gioImporter, ImportOptions options, String defaultExpression, String host, int port, int queueSize) {
+        if (queueSize < 1 || queueSize + options.getFileThreads() >= MAX_JOBS) {
+            throw new IllegalArgumentException("De wachtrij van de service moet tussen 1 en " + (MAX_JOBS - options.getFileThreads()) + " jobs groot zijn: " + queueSize);
+        }
+        this.gioImporter = gioImporter;
+        this.defaultExpression = defaultExpression;
+        this.host = host;
+        this.port = port;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        int workers = Math.max(1, options.getFileThreads());
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> new Thread(runnable, "gio-service-" + threadNumber.incrementAndGet()));
+    }
+
+    public void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("De service kan niet starten op " + host + ":" + port, e);
+        }
+        server.createContext("/imports", this::handle);
+        server.start();
+        System.out.printf("Service gestart op http://%s:%d/imports, %d worker(s)%n", host, server.getAddress().getPort(), executor.getCorePoolSize());
+    }
+
+    /**
+     * Wacht tot de service gestopt wordt.
+     */
+    public void await() throws InterruptedException {
+        gestopt.await();
+    }
+
+    /**
+     * Neemt geen nieuwe jobs meer aan, laat de lopende imports afmaken en annuleert de wachtende jobs.
+     */
+    public void stop() {
+        if (server == null) {
+            return;
+        }
+        System.out.println("Service wordt gestopt, lopende imports worden afgemaakt");
+        server.stop(0);
+        // shutdownNow zou de lopende imports onderbreken, daarom alleen de wachtrij leeghalen
+        executor.shutdown();
+        List<Runnable> wachtend = new ArrayList<>();
+        executor.getQueue().drainTo(wachtend);
+        for (Runnable job : wachtend) {
+            ((Job) job).klaar(Status.GEANNULEERD, "de service is gestopt", null);
+        }
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+        gestopt.countDown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/imports") || path.equals("/imports/")) {
+                if ("POST".equals(method)) {
+                    submit(exchange);
+                } else if ("GET".equals(method)) {
+                    List<String> lijst = new ArrayList<>();
+                    synchronized (jobs) {
+                        jobs.values().forEach(job -> lijst.add(job.toJson(false)));
+                    }
+                    send(exchange, 200, "[" + String.join(",", lijst) + "]");
+                } else {
+                    sendFout(exchange, 405, "Alleen GET en POST op /imports");
+                }
+            } else if (path.startsWith("/imports/") && "GET".equals(method)) {
+                Job job;
+                synchronized (jobs) {
+                    job = jobs.get(path.substring("/imports/".length()));
+                }
+                if (job != null) {
+                    send(exchange, 200, job.toJson(true));
+                } else {
+                    sendFout(exchange, 404, "Onbekende job");
+                }
+            } else {
+                sendFout(exchange, 404, "Onbekend pad " + path);
+            }
+        } catch (RuntimeException e) {
+            sendFout(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        String file = parameters.get("file");
+        String gioName = parameters.get("gio");
+        String expression = parameters.getOrDefault("regeling", defaultExpression);
+        if (file == null || gioName == null || expression == null || expression.isEmpty()) {
+            sendFout(exchange, 400, "De parameters file en gio zijn verplicht, en regeling als er geen regeling.expression ingesteld is");
+            return;
+        }
+        if (!new File(file).isFile()) {
+            sendFout(exchange, 400, "Het GIO bestand op de volgende locatie kan niet gevonden worden: " + file);
+            return;
+        }
+
+        Job job = new Job(Long.toString(volgnummer.incrementAndGet()), new GioImportJob(new File(file), gioName, expression));
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+        }
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.id);
+            }
+            sendFout(exchange, 503, "De wachtrij is vol, probeer het later opnieuw");
+            return;
+        }
+
+        System.out.printf("Job %s aangenomen: %s%n", job.id, job.job);
+        exchange.getResponseHeaders().set("Location", "/imports/" + job.id);
+        send(exchange, 202, job.toJson(false));
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parse(exchange.getRequestURI().getRawQuery(), parameters);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(body);
+        }
+        parse(body.toString(StandardCharsets.UTF_8), parameters);
+        return parameters;
+    }
+
+    private static void parse(String query, Map<String, String> parameters) {
+        if (query == null || query.isBlank()) {
+            return;
+        }
+        for (String pair : query.trim().split("&")) {
+            int is = pair.indexOf('=');
+            if (is > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, is), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(is + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static void sendFout(HttpExchange exchange, int status, String melding) throws IOException {
+        send(exchange, status, "{\"fout\":" + ImportMetrics.quote(melding) + "}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private class Job implements Runnable {
+
+        private final String id;
+        private final GioImportJob job;
+        private final Instant aangemaakt = Instant.now();
+        private volatile Status status = Status.WACHTEND;
+        private volatile Instant gestart;
+        private volatile Instant klaar;
+        private volatile String fout;
+        private volatile String metingen;
+
+        Job(String id, GioImportJob job) {
+            this.id = id;
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            gestart = Instant.now();
+            status = Status.BEZIG;
+            System.out.printf("Job %s gestart: %s%n", id, job);
+            try {
+                ImportMetrics metrics = gioImporter.run(job);
+                klaar(Status.GEREED, null, metrics);
+                System.out.printf("Job %s gereed: %s%n", id, job);
+            } catch (RuntimeException e) {
+                System.err.println("Job " + id + ", het importeren van " + job + " is mislukt: " + e.getMessage());
+                e.printStackTrace();
+                klaar(Status.MISLUKT, e.getMessage() != null ? e.getMessage() : e.toString(), null);
+            }
+        }
+
+        void klaar(Status status, String fout, ImportMetrics metrics) {
+            this.fout = fout;
+            this.metingen = metrics != null ? metrics.toJson() : null;
+            this.klaar = Instant.now();
+            this.status = status;
+        }
+
+        String toJson(boolean metMetingen) {
+            StringBuilder json = new StringBuilder("{");
+            json.append("\"id\":").append(ImportMetrics.quote(id));
+            json.append(",\"bestand\":").append(ImportMetrics.quote(job.getFile().getPath()));
+            json.append(",\"gio\":").append(ImportMetrics.quote(job.getGioName()));
+            json.append(",\"regeling\":").append(ImportMetrics.quote(job.getRegelingExpression()));
+            json.append(",\"status\":").append(ImportMetrics.quote(status.name()));
+            json.append(",\"aangemaakt\":").append(ImportMetrics.quote(aangemaakt.toString()));
+            if (gestart != null) {
+                json.append(",\"gestart\":").append(ImportMetrics.quote(gestart.toString()));
+            }
+            if (klaar != null) {
+                json.append(",\"klaar\":").append(ImportMetrics.quote(klaar.toString()));
+            }
+            if (fout != null) {
+                json.append(",\"fout\":").append(ImportMetrics.quote(fout));
+            }
+            if (metMetingen && metingen != null) {
+                json.append(",\"metingen\":").append(metingen);
+            }
+            return json.append('}').toString();
+        }
+    }
+}
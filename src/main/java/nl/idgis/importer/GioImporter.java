@@ -1,141 +1,304 @@
 package nl.idgis.importer;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.stereotype.Component;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.XMLConstants;
-import javax.xml.namespace.NamespaceContext;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
 import java.io.File;
-import java.io.IOException;
-import java.io.StringWriter;
-import java.sql.Date;
-import java.sql.PreparedStatement;
-import java.sql.Statement;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
-@Component
 public class GioImporter {
 
     private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final GioParser parser;
+    private final ImportOptions options;
+    private final MetricsRegistry metricsRegistry;
+    private final Map<String, Regeling> regelingen = new ConcurrentHashMap<>();
 
     private final String inputFile;
     private final String gioName;
     private final String regelingExpression;
 
-    @Autowired
-    public GioImporter(JdbcTemplate jdbcTemplate, String inputFile, String gioName, String regelingExpression) {
+    public GioImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, GioParser parser, ImportOptions options,
+                       MetricsRegistry metricsRegistry, String inputFile, String gioName, String regelingExpression) {
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.parser = parser;
+        this.options = options;
+        this.metricsRegistry = metricsRegistry;
         this.inputFile = inputFile;
         this.gioName = gioName;
         this.regelingExpression = regelingExpression;
     }
 
     public void importGio() {
-        File file = new File(inputFile);
+        importGio(new GioImportJob(new File(inputFile), gioName, regelingExpression));
+    }
+
+    public void importGio(GioImportJob job) {
+        run(job);
+    }
+
+    /**
+     * Importeert het GIO en geeft de metingen van de import (of de dry run) terug.
+     */
+    ImportMetrics run(GioImportJob job) {
+        File file = job.getFile();
         if (!file.exists()) {
             throw new IllegalArgumentException("Het GIO bestand op de volgende locatie kan niet gevonden worden: " + file.getAbsolutePath());
         }
 
-        // Haal regelingId op
-        int regelingVersieId = getRegelingVersieId(regelingExpression);
-        int regelingId = getRegelingId(regelingVersieId);
-        int eindverantwoordelijkeId = getEindverantwoordelijkeId(regelingVersieId);
-        int makerId = getMakerId(regelingVersieId);
-        String eindverantwoordelijke = getEindverantwoordelijke(eindverantwoordelijkeId);
+        if (options.isDryRun()) {
+            return dryRun(job);
+        }
+        if (options.getOutputDirectory() != null) {
+            return export(job);
+        }
+
+        // In bulk mode is alles een statement, met meerdere threads committen de workers ieder hun eigen chunk
+        int commitInterval = options.isBulk() || options.getThreads() > 1 ? 0 : options.getCommitInterval();
+        GioDelta delta = null;
+        if (options.isDelta()) {
+            GioDelta.checkHashTable(jdbcTemplate);
+            delta = GioDelta.load(jdbcTemplate, file);
+        }
+
+        ImportJournal journal = options.getJournalDirectory() != null ? ImportJournal.open(options.getJournalDirectory(), job) : null;
+
+        // Een fout GIO afkeuren voordat er iets in de database staat
+        String geometrietype = options.isValidate() ? valideer(file, journal) : null;
 
+        ImportMetrics metrics = new ImportMetrics(metricsRegistry, file.getName());
+        ImportTransaction transaction = new ImportTransaction(transactionManager, commitInterval);
+        transaction.begin();
         try {
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setNamespaceAware(true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document doc = db.parse(file);
-
-            XPath xPath = new XPathBuilder()
-                .xmlns("basisgeo", "http://www.geostandaarden.nl/basisgeometrie/1.0")
-                .xmlns("geo", "https://standaarden.overheid.nl/stop/imop/geo/")
-                .xmlns("gio", "https://standaarden.overheid.nl/stop/imop/gio/")
-                .xmlns("gml", "http://www.opengis.net/gml/3.2")
-                .build();
-
-            NodeList locaties = (NodeList) xPath.compile("//geo:Locatie").evaluate(doc, XPathConstants.NODESET);
-            List<Integer> locatieIds = new ArrayList<>();
-            for (int i = 0; i < locaties.getLength(); i++) {
-                Node locatie = locaties.item(i);
-                Node naam = (Node) xPath.compile("./geo:naam").evaluate(locatie, XPathConstants.NODE);
-                Node id = (Node) xPath.compile(".//basisgeo:id").evaluate(locatie, XPathConstants.NODE);
-                Node gmlNode = (Node) xPath.compile(".//*[@gml:id='id-" + id.getTextContent() + "']").evaluate(locatie, XPathConstants.NODE);
-
-                // Geometrie + Locatie
-                System.out.printf("Bezig met verwerken van locatie '%s' (%d/%d)%n", naam.getTextContent(), i + 1, locaties.getLength());
-                if (!geometryExists(id.getTextContent())) {
-                    int geometrieId = insertGeometry(id.getTextContent(), naam.getTextContent(), getGml(gmlNode));
-                    String geometryType = getGeometryType(geometrieId);
-                    locatieIds.add(insertLocatie(naam.getTextContent(), LocalDate.now(), regelingId, geometryType, geometrieId, eindverantwoordelijke));
-                } else {
-                    int geometrieId = getGeometrieId(id.getTextContent());
-                    locatieIds.add(getLocatieId(geometrieId));
+            Regeling regeling = getRegeling(job.getRegelingExpression());
+            PostgresGioSink sink = new PostgresGioSink(jdbcTemplate, regeling, delta, LocalDate.now(), options.getBatchSize(),
+                    !options.isBulk() && options.getThreads() > 1, metrics);
+
+            if (options.isBulk()) {
+                jdbcTemplate.execute((ConnectionCallback<Void>) conn -> {
+                    importBulk(conn, job, regeling, sink, metrics);
+                    return null;
+                });
+            } else {
+                importBatched(job, sink, transaction, journal, metrics, geometrietype);
+                if (delta != null) {
+                    delta.printSamenvatting();
                 }
             }
 
-            // Groep locatie
-            System.out.println("Bezig met het maken van de groepslocatie");
-            String geometryType = getLocatieGeometryType(locatieIds.get(0));
-            int locatieGroepId = insertLocatie(gioName, LocalDate.now(), regelingId, geometryType, eindverantwoordelijke);
-
-            locatieIds.forEach(locatieId -> linkLocatieToGroep(locatieId, locatieGroepId));
-
-            // Informatieobjectversie
-            System.out.println("Bezig met het verwerken van de GIO");
-            Node frbrWork = (Node) xPath.compile("//geo:FRBRWork").evaluate(doc, XPathConstants.NODE);
-            Node frbrExpression = (Node) xPath.compile("//geo:FRBRExpression").evaluate(doc, XPathConstants.NODE);
-            Node achtergrondVerwijzingNode = (Node) xPath.compile("//gio:achtergrondVerwijzing").evaluate(doc, XPathConstants.NODE);
-            Node achtergrondActualiteitNode = (Node) xPath.compile("//gio:achtergrondActualiteit").evaluate(doc, XPathConstants.NODE);
-            Node nauwkeurigheidNode = (Node) xPath.compile("//gio:nauwkeurigheid").evaluate(doc, XPathConstants.NODE);
-
-            String achtergrondVerwijzing = achtergrondVerwijzingNode != null ? achtergrondVerwijzingNode.getTextContent() : null;
-            String achtergrondActualiteit = achtergrondActualiteitNode != null ? achtergrondActualiteitNode.getTextContent() : null;
-            String nauwkeurigheid = nauwkeurigheidNode != null ? nauwkeurigheidNode.getTextContent() : null;
-
-            insertInformatieObjectVersie(frbrWork.getTextContent(), frbrExpression.getTextContent(), regelingId, eindverantwoordelijkeId, makerId,
-                    gioName, achtergrondVerwijzing, achtergrondActualiteit, nauwkeurigheid, locatieGroepId);
-        } catch (ParserConfigurationException | SAXException | IOException | XPathExpressionException e) {
-            e.printStackTrace();
+            transaction.commit();
+        } catch (RuntimeException e) {
+            transaction.rollback();
+            if (journal != null) {
+                journal.close();
+                System.err.printf("Import afgebroken, bij een nieuwe import wordt verder gegaan na locatie %d%n", journal.size());
+            }
+            throw e;
+        } finally {
+            metrics.stop();
+            System.out.print(metrics.toText());
+            if (options.getMetricsDirectory() != null) {
+                metrics.writeJson(new File(options.getMetricsDirectory(), file.getName() + ".metrics.json"));
+            }
+        }
+
+        if (journal != null) {
+            journal.delete();
+        }
+        return metrics;
+    }
+
+    // Een hervatte import hoeft een bestand dat bij de vorige poging al gevalideerd is niet opnieuw te valideren, het
+    // journal hoort alleen bij een ongewijzigd bestand
+    private static String valideer(File file, ImportJournal journal) {
+        if (journal != null && journal.isGevalideerd()) {
+            System.out.println("Het GIO is bij de vorige import al gevalideerd");
+            return journal.getGeometrietype();
+        }
+
+        try {
+            String geometrietype = new GioValidator().valideer(file);
+            if (journal != null && journal.size() == 0) {
+                journal.setGevalideerd(geometrietype);
+            }
+            return geometrietype;
+        } catch (RuntimeException e) {
+            // Er is nog niets geimporteerd, een nieuwe import hoeft niets te hervatten
+            if (journal != null && journal.size() == 0) {
+                journal.delete();
+            } else if (journal != null) {
+                journal.close();
+            }
+            throw e;
         }
     }
 
-    private String getGml(Node gmlNode) {
-        try (StringWriter sw = new StringWriter()) {
-            TransformerFactory tf = TransformerFactory.newInstance();
-            tf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            Transformer t = tf.newTransformer();
-            t.setOutputProperty(OutputKeys.INDENT, "yes");
-            t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-            t.transform(new DOMSource(gmlNode), new StreamResult(sw));
-
-            return sw.toString();
-        } catch (IOException | TransformerException e) {
-            throw new IllegalStateException("GML kon niet geparsed worden", e);
+    /**
+     * Parst en controleert het GIO en zoekt de geometrieen op in een read-only transactie, zonder iets weg te schrijven.
+     * Fouten uit de validatie, zoals verschillende geometrietypen, komen als waarschuwingen in het verslag.
+     */
+    private ImportMetrics dryRun(GioImportJob job) {
+        File file = job.getFile();
+        GioValidator validator = new GioValidator();
+        List<String> waarschuwingen = validator.controleer(file);
+        if (validator.isAfgekapt()) {
+            waarschuwingen.add("...");
+        }
+        if (options.isDelta()) {
+            System.out.println("Een dry run vergelijkt niet met de vorige versie, alle geometrieen worden op geometrie_id opgezocht");
+        }
+
+        ImportMetrics metrics = new ImportMetrics(metricsRegistry, file.getName());
+        GioDryRun dryRun = new GioDryRun(jdbcTemplate, options, metrics);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            getRegeling(job.getRegelingExpression());
+
+            long start = System.nanoTime();
+            ImportMetrics.Scope scope = metrics.bind();
+            try {
+                parser.parse(file, dryRun);
+            } finally {
+                scope.close();
+            }
+            metrics.record(ImportMetrics.PARSE, System.nanoTime() - start - dryRun.getConsumerNanos());
+            dryRun.finish();
+        });
+        metrics.stop();
+
+        dryRun.printVerslag(file.getName(), validator.getGeometrietype(), waarschuwingen);
+        if (options.getMetricsDirectory() != null) {
+            metrics.writeJson(new File(options.getMetricsDirectory(), file.getName() + ".dryrun.json"));
         }
+        return metrics;
+    }
+
+    /**
+     * Schrijft het GIO naar een bestand met WKB geometrieen in de uitvoerdirectory, zonder database. Een half
+     * geschreven bestand wordt bij een fout weer verwijderd.
+     */
+    private ImportMetrics export(GioImportJob job) {
+        if (options.isBulk()) {
+            throw new IllegalArgumentException("import.bulk gaat niet via een GioSink en kan niet naar import.output.dir schrijven");
+        }
+        File file = job.getFile();
+        String geometrietype = options.isValidate() ? new GioValidator().valideer(file) : null;
+
+        File uitvoer = new File(options.getOutputDirectory(), file.getName() + ".wkb");
+        ImportMetrics metrics = new ImportMetrics(metricsRegistry, file.getName());
+        try {
+            try (WkbFileSink sink = new WkbFileSink(uitvoer, metrics)) {
+                importBatched(job, sink, null, null, metrics, geometrietype);
+            }
+        } catch (RuntimeException e) {
+            if (!uitvoer.delete() && uitvoer.exists()) {
+                System.err.println("Het onvolledige bestand kon niet verwijderd worden: " + uitvoer.getAbsolutePath());
+            }
+            throw e;
+        } finally {
+            metrics.stop();
+            System.out.print(metrics.toText());
+            if (options.getMetricsDirectory() != null) {
+                metrics.writeJson(new File(options.getMetricsDirectory(), file.getName() + ".metrics.json"));
+            }
+        }
+
+        System.out.println("GIO weggeschreven naar " + uitvoer.getAbsolutePath());
+        return metrics;
+    }
+
+    // De GIO's van een omgevingsplan horen meestal bij dezelfde regelingversie, die hoeft maar een keer opgezocht te worden
+    private Regeling getRegeling(String expression) {
+        Regeling regeling = regelingen.get(expression);
+        if (regeling == null) {
+            int regelingVersieId = getRegelingVersieId(expression);
+            int regelingId = getRegelingId(regelingVersieId);
+            int eindverantwoordelijkeId = getEindverantwoordelijkeId(regelingVersieId);
+            int makerId = getMakerId(regelingVersieId);
+            String eindverantwoordelijke = getEindverantwoordelijke(eindverantwoordelijkeId);
+            regeling = new Regeling(regelingId, eindverantwoordelijkeId, makerId, eindverantwoordelijke);
+            regelingen.put(expression, regeling);
+        }
+
+        return regeling;
+    }
+
+    /**
+     * Parst het GIO en schrijft het per chunk naar de sink. Zonder transactie (bij een bestand als uitvoer) schrijven
+     * de workers hun chunks ook zonder transactie weg.
+     */
+    private void importBatched(GioImportJob job, GioSink sink, ImportTransaction transaction, ImportJournal journal, ImportMetrics metrics,
+                               String geometrietype) {
+        GioMetadata metadata;
+        List<Integer> locatieIds;
+        String geometryType;
+        try (ImportPipeline pipeline = new ImportPipeline(sink::writeLocaties, options, transaction != null ? transactionManager : null,
+                transaction != null ? transaction::checkpoint : aantal -> { }, metrics)) {
+            int overslaan = 0;
+            if (journal != null) {
+                overslaan = journal.size();
+                pipeline.resume(journal.getLocatieIds());
+                transaction.setCheckpointListener(() -> journal.append(pipeline.getLocatieIds(journal.size())));
+            }
+            long start = System.nanoTime();
+            ImportMetrics.Scope scope = metrics.bind();
+            try {
+                metadata = parser.parse(job.getFile(), overslaan, pipeline);
+            } finally {
+                scope.close();
+            }
+            metrics.record(ImportMetrics.PARSE, System.nanoTime() - start - pipeline.getConsumerNanos());
+            locatieIds = pipeline.finish();
+            geometryType = pipeline.getGeometrietype() != null ? pipeline.getGeometrietype() : geometrietype;
+        }
+
+        // Groep locatie
+        System.out.println("Bezig met het maken van de groepslocatie");
+        if (geometryType == null && transaction != null && !locatieIds.isEmpty()) {
+            // Hervat na de laatste locatie, zonder validatie: het type staat bij de eerste locatie in de database. Bij
+            // een bestand als uitvoer zijn de locatie ids volgnummers in het bestand, het type blijft dan leeg.
+            geometryType = getLocatieGeometryType(locatieIds.get(0));
+        }
+        int locatieGroepId = sink.insertGroep(job.getGioName(), geometryType);
+
+        sink.linkLocatiesToGroep(locatieIds, locatieGroepId);
+
+        // Informatieobjectversie
+        System.out.println("Bezig met het verwerken van de GIO");
+        sink.insertInformatieObjectVersie(metadata, job.getGioName(), locatieGroepId);
+    }
+
+    private void importBulk(Connection conn, GioImportJob job, Regeling regeling, PostgresGioSink sink, ImportMetrics metrics) throws SQLException {
+        LocalDate dateStart = sink.getDateStart();
+        CopyBulkLoader bulkLoader = new CopyBulkLoader(metrics, options.isValidate());
+
+        System.out.println("Bezig met het laden van de locaties in de staging tabel");
+        GioMetadata metadata = bulkLoader.stage(conn, job.getFile(), parser);
+
+        // Geometrie + Locatie
+        System.out.println("Bezig met het inserten van de nieuwe geometrieen en locaties");
+        int nieuw = bulkLoader.insertGeometrieenEnLocaties(conn, dateStart, regeling.id, regeling.eindverantwoordelijke);
+        System.out.printf("%d nieuwe locaties aangemaakt%n", nieuw);
+
+        // Groep locatie
+        System.out.println("Bezig met het maken van de groepslocatie");
+        String geometryType = bulkLoader.getGroepGeometryType(conn);
+        int locatieGroepId = sink.insertGroep(job.getGioName(), geometryType);
+
+        bulkLoader.linkLocatiesToGroep(conn, locatieGroepId);
+
+        // Informatieobjectversie
+        System.out.println("Bezig met het verwerken van de GIO");
+        sink.insertInformatieObjectVersie(metadata, job.getGioName(), locatieGroepId);
     }
 
     private int getRegelingVersieId(String expressionId) {
@@ -251,92 +414,6 @@ public class GioImporter {
         return maker;
     }
 
-    private boolean geometryExists(String gmlId) {
-        String sql = "SELECT * FROM bzk.geometrie WHERE geometrie_id = ?";
-        String errorMessage = "Kon niet bepalen of de geometrie met id '" + gmlId + "' al bestaat";
-
-        return jdbcTemplate.query(
-                sql,
-                ps -> ps.setString(1, gmlId),
-                (rs, rowNum) -> rs.getInt(1)
-        ).stream().findFirst().isPresent();
-    }
-
-    private int insertGeometry(String gmlId, String naam, String gml) {
-        String sql =
-                "INSERT INTO bzk.geometrie (naam, geometrie_id, geometrie) " +
-                "VALUES (?, ?, ST_GEOMFROMGML(?, 28992)) " +
-                "RETURNING id";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-
-        jdbcTemplate.update(
-                conn -> {
-                    PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                    ps.setString(1, naam);
-                    ps.setString(2, gmlId);
-                    ps.setString(3, gml);
-
-                    return ps;
-                },
-                keyHolder
-        );
-
-        return Optional.ofNullable(keyHolder.getKey())
-            .map(Number::intValue)
-            .orElseThrow(() -> new IllegalStateException("Er ging iets mis bij het inserten van de geometrie " + gmlId));
-    }
-
-    private int getGeometrieId(String gmlId) {
-        String sql = "SELECT id FROM bzk.geometrie WHERE geometrie_id = ?";
-        String errorMessage = "Kon de id van de geometrie '" + gmlId + "' niet ophalen";
-
-        Integer id = jdbcTemplate.query(
-                conn -> conn.prepareStatement(sql),
-                ps -> ps.setString(1, gmlId),
-                rs -> {
-                    if (rs.next()) {
-                        return rs.getInt("id");
-                    }
-                    throw new IllegalArgumentException(errorMessage);
-                }
-        );
-
-        if (id == null) {
-            throw new IllegalArgumentException(errorMessage);
-        }
-
-        return id;
-    }
-
-    private String getGeometryType(int geometrieId) {
-        String sql = "SELECT ST_GEOMETRYTYPE(geometrie) geom_type FROM bzk.geometrie WHERE id = ?";
-        String errorMessage = "Kon het type van de geometrie niet bepalen";
-
-        String geometryType = jdbcTemplate.query(
-                conn -> conn.prepareStatement(sql),
-                ps -> ps.setInt(1, geometrieId),
-                rs -> {
-                    if (rs.next()) {
-                        String type = rs.getString("geom_type").toLowerCase();
-                        if (type.contains("polygon")) {
-                            return "vlak";
-                        } else if (type.contains("line")) {
-                            return "lijn";
-                        } else if (type.contains("point")) {
-                            return "punt";
-                        }
-                    }
-                    throw new IllegalArgumentException(errorMessage);
-                }
-        );
-
-        if (geometryType == null) {
-            throw new IllegalArgumentException(errorMessage);
-        }
-
-        return geometryType;
-    }
-
     private String getLocatieGeometryType(int locatieId) {
         String sql = "SELECT geometrietype FROM bzk.locatie WHERE id = ?";
         String errorMessage = "Kon het geometrietype van de locatie niet bepalen";
@@ -359,150 +436,17 @@ public class GioImporter {
         return geometryType;
     }
 
-    private int getLocatieId(int geometrieId) {
-        String sql = "SELECT id FROM bzk.locatie WHERE geometrie_id = ?";
-        String errorMessage = "Kon de id van de locatie niet ophalen";
-
-        Integer id = jdbcTemplate.query(
-                conn -> conn.prepareStatement(sql),
-                ps -> ps.setInt(1, geometrieId),
-                rs -> {
-                    if (rs.next()) {
-                        return rs.getInt("id");
-                    }
-                    throw new IllegalArgumentException(errorMessage);
-                }
-        );
-
-        if (id == null) {
-            throw new IllegalArgumentException(errorMessage);
-        }
-
-        return id;
-    }
-
-    private int insertLocatie(String name, LocalDate dateStart, int regelingId, String geometryType, int geometryId, String bgCode) {
-        String sql =
-                "INSERT INTO bzk.locatie (naam, datum_begin, ind_groep_jn, regeling_id, geometrietype, geometrie_id, identificatie) " +
-                "VALUES (?, ?, false, ?, ?, ?, ?) " +
-                "RETURNING id";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-
-        String objectType = "vlak".equals(geometryType) ? "gebied" : geometryType;
-        String identificatie = "nl.imow-" + bgCode + "." + objectType + "." + UUID.randomUUID().toString().replace("-", "").toLowerCase();
-        jdbcTemplate.update(
-                conn -> {
-                    PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                    ps.setString(1, name);
-                    ps.setDate(2, Date.valueOf(dateStart));
-                    ps.setInt(3, regelingId);
-                    ps.setString(4, geometryType);
-                    ps.setInt(5, geometryId);
-                    ps.setString(6, identificatie);
-
-                    return ps;
-                },
-                keyHolder
-        );
-
-        return Optional.ofNullable(keyHolder.getKey())
-            .map(Number::intValue)
-            .orElseThrow(() -> new IllegalStateException("Er ging iets mis bij het inserten van de locatie"));
-    }
-
-    private int insertLocatie(String name, LocalDate dateStart, int regelingId, String geometryType, String bgCode) {
-        String sql =
-                "INSERT INTO bzk.locatie (naam, datum_begin, ind_groep_jn, regeling_id, geometrietype, identificatie) " +
-                "VALUES (?, ?, true, ?, ?, ?) " +
-                "RETURNING id";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-
-        String objectType = "vlak".equals(geometryType) ? "gebied" : geometryType;
-        String identificatie = "nl.imow-" + bgCode + "." + objectType + "engroep." + UUID.randomUUID().toString().replace("-", "").toLowerCase();
-        jdbcTemplate.update(
-                conn -> {
-                    PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                    ps.setString(1, name);
-                    ps.setDate(2, Date.valueOf(dateStart));
-                    ps.setInt(3, regelingId);
-                    ps.setString(4, geometryType);
-                    ps.setString(5, identificatie);
-
-                    return ps;
-                },
-                keyHolder
-        );
-
-        return Optional.ofNullable(keyHolder.getKey())
-            .map(Number::intValue)
-            .orElseThrow(() -> new IllegalStateException("Er ging iets mis bij het inserten van de locatie"));
-    }
-
-    private void linkLocatieToGroep(int locatieId, int locatieGroepId) {
-        String sql = "INSERT INTO bzk.groep_locatie (locatiegroep_id, locatie_id) VALUES (?, ?)";
-
-        jdbcTemplate.update(sql, ps -> {
-            ps.setInt(1, locatieGroepId);
-            ps.setInt(2, locatieId);
-        });
-    }
-
-    private void insertInformatieObjectVersie(String frbrWork, String frbrExpression, int regelingId, int eindverantwoordelijkeId,
-                      int makerId, String gioName, String achtergrondVerwijzing, String achergrondActualiteit, String nauwkeurigheid,
-                      int locatieId) {
-        String sql =
-                "INSERT INTO bzk.informatieobjectversie (frbr_work, frbr_expression, soort_work_id, regeling_id, eindverantwoordelijke_id, maker_id, " +
-                        "formaat_informatieobject_id, naam, officiele_titel, publicatie_instructie_id, stop_schema_versie, achtergrond_verwijzing, " +
-                        "achtergrond_actualiteit, nauwkeurigheid, locatie_id) " +
-                "VALUES (?, ?, 2056, ?, ?, ?, 1410, ?, ?, 3, '1.3.0', ?, ?, ?, ?)";
-
-        jdbcTemplate.update(sql, ps -> {
-            ps.setObject(1, frbrWork);
-            ps.setObject(2, frbrExpression);
-            ps.setObject(3, regelingId);
-            ps.setObject(4, eindverantwoordelijkeId);
-            ps.setObject(5, makerId);
-            ps.setObject(6, gioName);
-            ps.setObject(7, frbrWork);
-            ps.setObject(8, achtergrondVerwijzing);
-            ps.setObject(9, achergrondActualiteit != null ? Date.valueOf(achergrondActualiteit) : null);
-            ps.setObject(10, nauwkeurigheid != null ? Integer.parseInt(nauwkeurigheid) : null);
-            ps.setObject(11, locatieId);
-        });
-    }
-
-    private static class XPathBuilder {
-        private final Map<String, String> namespaces = new HashMap<>();
-
-        public XPathBuilder xmlns(String prefix, String namespaceURI) {
-            namespaces.put(prefix, namespaceURI);
-            return this;
-        }
-
-        public XPath build() {
-            XPath xp = XPathFactory.newInstance().newXPath();
-            xp.setNamespaceContext(new NamespaceContext() {
-
-                @Override
-                public String getNamespaceURI(String prefix) {
-                    return namespaces.get(prefix);
-                }
-
-                @Override
-                public String getPrefix(String namespaceURI) {
-                    return getPrefixes(namespaceURI).next();
-                }
-
-                @Override
-                public Iterator<String> getPrefixes(String namespaceURI) {
-                    return namespaces.entrySet().stream()
-                        .filter(entry -> entry.getValue().equals(namespaceURI))
-                        .map(Map.Entry::getKey)
-                        .iterator();
-                }
-            });
-
-            return xp;
+    static class Regeling {
+        final int id;
+        final int eindverantwoordelijkeId;
+        final int makerId;
+        final String eindverantwoordelijke;
+
+        private Regeling(int id, int eindverantwoordelijkeId, int makerId, String eindverantwoordelijke) {
+            this.id = id;
+            this.eindverantwoordelijkeId = eindverantwoordelijkeId;
+            this.makerId = makerId;
+            this.eindverantwoordelijke = eindverantwoordelijke;
         }
     }
 }
@@ -0,0 +1,35 @@
+package nl.idgis.importer;
+
+public class GioLocatie {
+
+    private final String id;
+    private final String naam;
+    private final String gml;
+    private final String geometrietype;
+
+    public GioLocatie(String id, String naam, String gml) {
+        this.id = id;
+        this.naam = naam;
+        this.gml = gml;
+        this.geometrietype = Geometrietype.vanGml(gml);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getNaam() {
+        return naam;
+    }
+
+    public String getGml() {
+        return gml;
+    }
+
+    /**
+     * vlak, lijn of punt, of null als het GML element geen bekende geometrie is
+     */
+    public String getGeometrietype() {
+        return geometrietype;
+    }
+}
@@ -0,0 +1,95 @@
+package nl.idgis.importer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Leest de lijst met te importeren GIO's uit een manifest. Dat is een directory, waarvan alle .gml en .xml
+ * bestanden geimporteerd worden, of een CSV bestand met per regel:
+ *
+ * <pre>bestand;naam;regelingexpressie</pre>
+ *
+ * De naam en de expressie mogen leeg blijven, dan worden de bestandsnaam zonder extensie en de standaard expressie
+ * gebruikt. Relatieve paden zijn relatief aan de directory van het manifest. Lege regels en regels die met # beginnen
+ * worden overgeslagen.
+ */
+public class GioManifest {
+
+    private GioManifest() {
+    }
+
+    public static List<GioImportJob> read(File manifest, String defaultExpression) {
+        if (manifest.isDirectory()) {
+            return readDirectory(manifest, defaultExpression);
+        }
+        if (!manifest.isFile()) {
+            throw new IllegalArgumentException("Het manifest op de volgende locatie kan niet gevonden worden: " + manifest.getAbsolutePath());
+        }
+
+        List<GioImportJob> jobs = new ArrayList<>();
+        File directory = manifest.getAbsoluteFile().getParentFile();
+        try (BufferedReader reader = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split(";", -1);
+                if (fields.length > 3 || fields[0].trim().isEmpty()) {
+                    throw new IllegalArgumentException("Ongeldige regel " + lineNumber + " in het manifest, verwacht: bestand;naam;regelingexpressie");
+                }
+
+                File file = new File(fields[0].trim());
+                if (!file.isAbsolute()) {
+                    file = new File(directory, file.getPath());
+                }
+                String name = fields.length > 1 && !fields[1].trim().isEmpty() ? fields[1].trim() : getBaseName(file);
+                String expression = fields.length > 2 && !fields[2].trim().isEmpty() ? fields[2].trim() : defaultExpression;
+                jobs.add(createJob(file, name, expression));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Het manifest kon niet gelezen worden: " + manifest.getAbsolutePath(), e);
+        }
+
+        return jobs;
+    }
+
+    private static List<GioImportJob> readDirectory(File directory, String defaultExpression) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".gml") || name.endsWith(".xml"));
+        if (files == null || files.length == 0) {
+            throw new IllegalArgumentException("Geen GIO bestanden gevonden in: " + directory.getAbsolutePath());
+        }
+
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        List<GioImportJob> jobs = new ArrayList<>();
+        for (File file : files) {
+            jobs.add(createJob(file, getBaseName(file), defaultExpression));
+        }
+
+        return jobs;
+    }
+
+    private static GioImportJob createJob(File file, String name, String expression) {
+        if (expression == null || expression.isEmpty()) {
+            throw new IllegalArgumentException("Geen regelingexpressie opgegeven voor " + file.getName());
+        }
+        return new GioImportJob(file, name, expression);
+    }
+
+    private static String getBaseName(File file) {
+        String name = file.getName();
+        int extension = name.lastIndexOf('.');
+        return extension > 0 ? name.substring(0, extension) : name;
+    }
+}
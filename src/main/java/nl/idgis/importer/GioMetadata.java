@@ -0,0 +1,50 @@
+package nl.idgis.importer;
+
+public class GioMetadata {
+
+    private String frbrWork;
+    private String frbrExpression;
+    private String achtergrondVerwijzing;
+    private String achtergrondActualiteit;
+    private String nauwkeurigheid;
+
+    public String getFrbrWork() {
+        return frbrWork;
+    }
+
+    public void setFrbrWork(String frbrWork) {
+        this.frbrWork = frbrWork;
+    }
+
+    public String getFrbrExpression() {
+        return frbrExpression;
+    }
+
+    public void setFrbrExpression(String frbrExpression) {
+        this.frbrExpression = frbrExpression;
+    }
+
+    public String getAchtergrondVerwijzing() {
+        return achtergrondVerwijzing;
+    }
+
+    public void setAchtergrondVerwijzing(String achtergrondVerwijzing) {
+        this.achtergrondVerwijzing = achtergrondVerwijzing;
+    }
+
+    public String getAchtergrondActualiteit() {
+        return achtergrondActualiteit;
+    }
+
+    public void setAchtergrondActualiteit(String achtergrondActualiteit) {
+        this.achtergrondActualiteit = achtergrondActualiteit;
+    }
+
+    public String getNauwkeurigheid() {
+        return nauwkeurigheid;
+    }
+
+    public void setNauwkeurigheid(String nauwkeurigheid) {
+        this.nauwkeurigheid = nauwkeurigheid;
+    }
+}
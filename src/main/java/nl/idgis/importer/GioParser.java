@@ -0,0 +1,26 @@
+package nl.idgis.importer;
+
+import java.io.File;
+import java.util.function.Consumer;
+
+public interface GioParser {
+
+    String BASISGEO_NS = "http://www.geostandaarden.nl/basisgeometrie/1.0";
+    String GEO_NS = "https://standaarden.overheid.nl/stop/imop/geo/";
+    String GIO_NS = "https://standaarden.overheid.nl/stop/imop/gio/";
+    String GML_NS = "http://www.opengis.net/gml/3.2";
+
+    /**
+     * Leest het GIO bestand en geeft iedere geo:Locatie in documentvolgorde door aan de consumer.
+     * De metadata van het GIO (FRBRWork, FRBRExpression, achtergrond, nauwkeurigheid) wordt teruggegeven.
+     */
+    default GioMetadata parse(File file, Consumer<GioLocatie> consumer) {
+        return parse(file, 0, consumer);
+    }
+
+    /**
+     * Als {@link #parse(File, Consumer)}, maar de eerste {@code overslaan} locaties worden niet uitgelezen en niet
+     * doorgegeven, bijvoorbeeld bij het hervatten van een import.
+     */
+    GioMetadata parse(File file, int overslaan, Consumer<GioLocatie> consumer);
+}
@@ -0,0 +1,31 @@
+package nl.idgis.importer;
+
+import java.util.List;
+
+/**
+ * Het doel waar de import een geparst GIO naartoe schrijft: de locaties met hun geometrie, de groepslocatie, de
+ * koppeling van de locaties aan de groep en de informatieobjectversie. {@link PostgresGioSink} schrijft naar de
+ * bzk tabellen, {@link WkbFileSink} naar een plat binair bestand, zonder database.
+ *
+ * {@link #writeLocaties} kan bij meerdere threads tegelijk aangeroepen worden, een basisgeo:id komt dan maar in een
+ * van de chunks voor. De andere methoden worden na het parsen op de thread van de import aangeroepen.
+ *
+ * De bulk import (import.bulk) gaat niet via een GioSink: {@link CopyBulkLoader} laadt de locaties met COPY in een
+ * staging tabel en verwerkt ze in de database. Bulk kan daarom niet naar een bestand schrijven.
+ */
+interface GioSink {
+
+    /**
+     * Schrijft een chunk locaties weg en geeft per locatie, in dezelfde volgorde, het id van de locatie terug.
+     */
+    int[] writeLocaties(List<GioLocatie> chunk);
+
+    /**
+     * Maakt de groepslocatie en geeft het id daarvan terug.
+     */
+    int insertGroep(String naam, String geometrietype);
+
+    void linkLocatiesToGroep(List<Integer> locatieIds, int groepId);
+
+    void insertInformatieObjectVersie(GioMetadata metadata, String gioName, int groepId);
+}
@@ -0,0 +1,306 @@
+package nl.idgis.importer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Controleert een GIO voordat er iets in de database geschreven wordt: iedere locatie moet een basisgeo:id en een
+ * geometrie met een bekend type hebben, alle locaties moeten hetzelfde geometrietype hebben en de coordinaten
+ * moeten kloppen (getallen, een veelvoud van de dimensie, genoeg punten en gesloten ringen). Zo wordt een fout GIO
+ * in een keer afgekeurd, in plaats van dat PostGIS halverwege de import een geometrie weigert.
+ *
+ * Net als de parsers gebruikt de validatie per locatie de geometrie met gml:id id-&lt;basisgeo:id&gt;, andere
+ * geometrieen in de locatie worden niet geimporteerd en ook niet gecontroleerd.
+ *
+ * Dit is een extra, lichte doorgang met StAX, de GML wordt niet geserialiseerd. De validatie staat standaard aan,
+ * voor GIO's die al gecontroleerd zijn kan hij uit (import.validate).
+ */
+class GioValidator {
+
+    private static final int MAX_FOUTEN = 20;
+
+    private final XMLInputFactory inputFactory;
+
+    private final List<String> fouten = new ArrayList<>();
+    private final Map<String, Integer> typen = new LinkedHashMap<>();
+    private final Map<String, String> voorbeelden = new LinkedHashMap<>();
+    private int locaties;
+
+    GioValidator() {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    /**
+     * Valideert het GIO en geeft het geometrietype van de locaties terug.
+     *
+     * @throws IllegalArgumentException met alle gevonden fouten (tot een maximum) als het GIO niet geldig is
+     */
+    String valideer(File file) {
+        List<String> fouten = controleer(file);
+        if (!fouten.isEmpty()) {
+            throw new IllegalArgumentException("Het GIO " + file.getName() + " is niet geldig, er is niets geimporteerd:\n  "
+                    + String.join("\n  ", fouten) + (isAfgekapt() ? "\n  ..." : ""));
+        }
+
+        String type = getGeometrietype();
+        System.out.printf("GIO %s gevalideerd: %d locaties, geometrietype %s%n", file.getName(), locaties, type);
+        return type;
+    }
+
+    /**
+     * Controleert het GIO en geeft de gevonden fouten (tot een maximum) terug, zonder het GIO af te keuren. Een lege
+     * lijst betekent dat het GIO geldig is.
+     */
+    List<String> controleer(File file) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext() && fouten.size() < MAX_FOUTEN) {
+                    if (reader.next() == START_ELEMENT && GioParser.GEO_NS.equals(reader.getNamespaceURI())
+                            && "Locatie".equals(reader.getLocalName())) {
+                        valideerLocatie(reader);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            fouten.add("Ongeldige XML: " + e.getMessage());
+        } catch (IOException e) {
+            throw new IllegalStateException("Het GIO bestand kon niet gelezen worden: " + file.getAbsolutePath(), e);
+        }
+
+        if (typen.size() > 1) {
+            StringBuilder melding = new StringBuilder("Het GIO bevat locaties met verschillende geometrietypen:");
+            typen.forEach((type, aantal) -> melding.append(String.format(" %d %s (bijvoorbeeld '%s'),", aantal, type, voorbeelden.get(type))));
+            fouten.add(0, melding.substring(0, melding.length() - 1));
+        }
+        if (locaties == 0 && fouten.isEmpty()) {
+            fouten.add("Het GIO bevat geen locaties");
+        }
+        return new ArrayList<>(fouten);
+    }
+
+    /**
+     * Geeft aan of er meer fouten zijn dan {@link #controleer(File)} teruggeeft.
+     */
+    boolean isAfgekapt() {
+        return fouten.size() >= MAX_FOUTEN;
+    }
+
+    /**
+     * Het geometrietype van de eerste locatie met een bekend type, of null als er geen is.
+     */
+    String getGeometrietype() {
+        return typen.isEmpty() ? null : typen.keySet().iterator().next();
+    }
+
+    private void valideerLocatie(XMLStreamReader reader) throws XMLStreamException {
+        locaties++;
+        String id = null;
+        Map<String, Geometrie> geometrieen = new HashMap<>();
+        Geometrie geometrie = null;
+        int geometrieDepth = 0;
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                if (id == null && GioParser.BASISGEO_NS.equals(reader.getNamespaceURI()) && "id".equals(reader.getLocalName())) {
+                    id = reader.getElementText();
+                } else if (GioParser.GML_NS.equals(reader.getNamespaceURI())) {
+                    String gmlId = reader.getAttributeValue(GioParser.GML_NS, "id");
+                    if (geometrie == null && gmlId != null) {
+                        // De buitenste geometrie bepaalt het type, de geneste geometrieen horen erbij
+                        geometrie = new Geometrie(reader.getLocalName());
+                        geometrieen.putIfAbsent(gmlId, geometrie);
+                        geometrieDepth = depth + 1;
+                    }
+                    if (geometrie == null || !geometrie.start(reader)) {
+                        depth++;
+                    }
+                } else {
+                    depth++;
+                }
+            } else if (event == END_ELEMENT) {
+                depth--;
+                if (geometrie != null && GioParser.GML_NS.equals(reader.getNamespaceURI())) {
+                    geometrie.end(reader.getLocalName());
+                    if (depth < geometrieDepth) {
+                        geometrie = null;
+                    }
+                }
+            }
+        }
+
+        String naam = id != null ? id.trim() : "#" + locaties;
+        if (id == null) {
+            fouten.add("Locatie " + naam + ": geen basisgeo:id");
+            return;
+        }
+        // Dezelfde geometrie als die de parsers bij de locatie zoeken
+        Geometrie gebruikt = geometrieen.get("id-" + id);
+        if (gebruikt == null) {
+            fouten.add("Locatie " + naam + ": geen GML geometrie met gml:id 'id-" + naam + "'");
+            return;
+        }
+        for (String fout : gebruikt.fouten) {
+            if (fouten.size() < MAX_FOUTEN) {
+                fouten.add("Locatie " + naam + ": " + fout);
+            }
+        }
+        if (gebruikt.type != null) {
+            typen.merge(gebruikt.type, 1, Integer::sum);
+            voorbeelden.putIfAbsent(gebruikt.type, naam);
+        }
+    }
+
+    /**
+     * Controleert de coordinaten binnen een geometrie. Iedere Point, LineString (of segment daarvan) en LinearRing
+     * telt zijn posities uit pos, posList of coordinates.
+     */
+    private static class Geometrie {
+
+        private final String type;
+        private final List<String> fouten = new ArrayList<>();
+        private int dimensie = 2;
+        private String primitief;
+        private int posities;
+        private double[] eerste;
+        private double[] laatste;
+
+        Geometrie(String localName) {
+            type = Geometrietype.vanElement(localName);
+            if (type == null) {
+                fouten.add("onbekend geometrietype gml:" + localName);
+            }
+        }
+
+        /**
+         * Geeft true terug als het element al helemaal gelezen is, de reader staat dan op het END_ELEMENT.
+         */
+        boolean start(XMLStreamReader reader) throws XMLStreamException {
+            String srsDimension = reader.getAttributeValue(null, "srsDimension");
+            if (srsDimension != null) {
+                try {
+                    dimensie = Integer.parseInt(srsDimension.trim());
+                } catch (NumberFormatException e) {
+                    dimensie = 0;
+                }
+                if (dimensie < 1) {
+                    fouten.add("ongeldige srsDimension '" + srsDimension + "'");
+                    dimensie = 2;
+                }
+            }
+
+            switch (reader.getLocalName()) {
+                case "Point":
+                case "LineString":
+                case "LineStringSegment":
+                case "LinearRing":
+                    primitief = reader.getLocalName();
+                    posities = 0;
+                    eerste = null;
+                    laatste = null;
+                    return false;
+                case "pos":
+                case "posList":
+                    posities(reader.getElementText());
+                    return true;
+                case "coordinates":
+                    coordinates(reader.getElementText());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        void end(String localName) {
+            if (!localName.equals(primitief)) {
+                return;
+            }
+            if ("Point".equals(primitief) && posities != 1) {
+                fouten.add("een gml:Point moet precies een positie hebben, niet " + posities);
+            } else if (("LineString".equals(primitief) || "LineStringSegment".equals(primitief)) && posities < 2) {
+                fouten.add("een gml:" + primitief + " moet minstens 2 posities hebben, niet " + posities);
+            } else if ("LinearRing".equals(primitief)) {
+                if (posities < 4) {
+                    fouten.add("een gml:LinearRing moet minstens 4 posities hebben, niet " + posities);
+                } else if (!Arrays.equals(eerste, laatste)) {
+                    fouten.add("een gml:LinearRing is niet gesloten");
+                }
+            }
+            primitief = null;
+        }
+
+        private void posities(String text) {
+            String[] waarden = text.trim().split("\\s+");
+            if (waarden.length == 1 && waarden[0].isEmpty()) {
+                fouten.add("lege coordinaten");
+                return;
+            }
+            if (waarden.length % dimensie != 0) {
+                fouten.add(waarden.length + " coordinaten is geen veelvoud van de dimensie " + dimensie);
+                return;
+            }
+            for (int i = 0; i < waarden.length; i += dimensie) {
+                double[] positie = new double[dimensie];
+                for (int j = 0; j < dimensie; j++) {
+                    positie[j] = getal(waarden[i + j]);
+                }
+                positie(positie);
+            }
+        }
+
+        // GML 2 stijl: "x,y x,y"
+        private void coordinates(String text) {
+            for (String tuple : text.trim().split("\\s+")) {
+                String[] waarden = tuple.split(",");
+                double[] positie = new double[waarden.length];
+                for (int j = 0; j < waarden.length; j++) {
+                    positie[j] = getal(waarden[j]);
+                }
+                positie(positie);
+            }
+        }
+
+        private void positie(double[] positie) {
+            if (eerste == null) {
+                eerste = positie;
+            }
+            laatste = positie;
+            posities++;
+        }
+
+        private double getal(String waarde) {
+            try {
+                double getal = Double.parseDouble(waarde);
+                if (!Double.isNaN(getal) && !Double.isInfinite(getal)) {
+                    return getal;
+                }
+            } catch (NumberFormatException e) {
+                // hieronder gemeld
+            }
+            fouten.add("ongeldige coordinaat '" + waarde + "'");
+            return Double.NaN;
+        }
+    }
+}
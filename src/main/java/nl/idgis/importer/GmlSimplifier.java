@@ -0,0 +1,343 @@
+package nl.idgis.importer;
+
+/**
+ * Rondt de coordinaten in een GML fragment (zoals {@link GmlWriter} dat schrijft) af op een vast aantal decimalen
+ * en verwijdert desgewenst dubbele en collineaire punten. Alleen de inhoud van gml:pos, gml:posList en
+ * gml:coordinates verandert, de rest van het fragment wordt letterlijk overgenomen.
+ *
+ * Een punt geldt als collineair als het tussen zijn buren ligt, op minder dan een halve afrondingseenheid van de
+ * lijn tussen die buren. Dat wordt getoetst tegen de overgebleven buren, bij een reeks verwijderde punten kan de
+ * geometrie dus meer verschuiven dan de halve afrondingseenheid. Een ring houdt minstens 4 punten en een lijn
+ * minstens 2, anders blijven alle (afgeronde) punten staan.
+ *
+ * Iedere thread heeft een eigen instantie, de buffers worden tussen de geometrieen door hergebruikt.
+ */
+final class GmlSimplifier {
+
+    private static final ThreadLocal<GmlSimplifier> INSTANCE = ThreadLocal.withInitial(GmlSimplifier::new);
+
+    private static final int MAX_BUFFER_SIZE = 1 << 20;
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+            1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private StringBuilder buffer = new StringBuilder(4096);
+    private double[] coordinaten = new double[256];
+    private int aantal;
+
+    private int decimalen;
+    private long eenheid;
+    private boolean punten;
+
+    // Per aanroep van simplify, voor het verslag
+    private int puntenVoor;
+    private int puntenNa;
+
+    private GmlSimplifier() {
+    }
+
+    /**
+     * @param decimalen aantal decimalen van de coordinaten, 0 t/m 9
+     * @param punten ook dubbele en collineaire punten verwijderen
+     */
+    static Result simplify(String gml, int decimalen, boolean punten) {
+        GmlSimplifier simplifier = INSTANCE.get();
+        simplifier.reset(decimalen, punten);
+        simplifier.write(gml);
+        return new Result(simplifier.buffer.toString(), simplifier.puntenVoor, simplifier.puntenNa);
+    }
+
+    private void reset(int decimalen, boolean punten) {
+        if (buffer.capacity() > MAX_BUFFER_SIZE) {
+            buffer = new StringBuilder(4096);
+        } else {
+            buffer.setLength(0);
+        }
+        this.decimalen = decimalen;
+        this.eenheid = (long) POW10[decimalen];
+        this.punten = punten;
+        puntenVoor = 0;
+        puntenNa = 0;
+    }
+
+    private void write(String gml) {
+        int dimensie = 2;
+        String element = null;
+        String ouder = null;
+
+        int i = 0;
+        while (i < gml.length()) {
+            int tag = gml.indexOf('<', i);
+            if (tag < 0) {
+                tag = gml.length();
+            }
+
+            if (tag > i) {
+                if ("posList".equals(element) || "pos".equals(element)) {
+                    writePosities(gml, i, tag, dimensie, "LinearRing".equals(ouder) ? 4 : 2);
+                } else if ("coordinates".equals(element)) {
+                    writeCoordinates(gml, i, tag);
+                } else {
+                    buffer.append(gml, i, tag);
+                }
+            }
+            if (tag == gml.length()) {
+                break;
+            }
+
+            int einde = gml.indexOf('>', tag);
+            if (einde < 0) {
+                throw new IllegalArgumentException("Ongeldige GML, een tag wordt niet afgesloten");
+            }
+            buffer.append(gml, tag, einde + 1);
+
+            if (gml.charAt(tag + 1) == '/') {
+                element = null;
+            } else if (gml.charAt(einde - 1) != '/') {
+                ouder = element != null ? element : ouder;
+                element = localName(gml, tag + 1, einde);
+                int srsDimension = attribuut(gml, tag, einde, "srsDimension");
+                if (srsDimension >= 0) {
+                    dimensie = Integer.parseInt(gml.substring(srsDimension, gml.indexOf('"', srsDimension)));
+                }
+            }
+            i = einde + 1;
+        }
+    }
+
+    static String localName(String gml, int start, int einde) {
+        int naamEinde = start;
+        while (naamEinde < einde && " \t\r\n/".indexOf(gml.charAt(naamEinde)) < 0) {
+            naamEinde++;
+        }
+        int prefix = gml.lastIndexOf(':', naamEinde - 1);
+        return gml.substring(prefix >= start ? prefix + 1 : start, naamEinde);
+    }
+
+    /**
+     * Zoekt een attribuut in de start tag van tag tot einde en geeft het begin van de waarde terug, of -1 als de tag
+     * het attribuut niet heeft. Er wordt niet buiten de tag gezocht, een ontbrekend attribuut kost dus niet meer dan
+     * de tag zelf.
+     */
+    static int attribuut(String gml, int tag, int einde, String naam) {
+        int laatste = einde - naam.length() - 2;
+        for (int i = tag + 1; i <= laatste; i++) {
+            if (gml.regionMatches(i, naam, 0, naam.length()) && Character.isWhitespace(gml.charAt(i - 1))
+                    && gml.charAt(i + naam.length()) == '=' && gml.charAt(i + naam.length() + 1) == '"') {
+                return i + naam.length() + 2;
+            }
+        }
+        return -1;
+    }
+
+    private void writePosities(String gml, int start, int einde, int dimensie, int minimum) {
+        aantal = 0;
+        int i = start;
+        while (i < einde) {
+            while (i < einde && Character.isWhitespace(gml.charAt(i))) {
+                i++;
+            }
+            if (i == einde) {
+                break;
+            }
+            int getal = i;
+            while (i < einde && !Character.isWhitespace(gml.charAt(i))) {
+                i++;
+            }
+            add(round(parse(gml, getal, i)));
+        }
+
+        int posities = aantal / dimensie;
+        puntenVoor += posities;
+        int behouden = punten && aantal % dimensie == 0 ? removePunten(dimensie, posities, minimum) : posities;
+        puntenNa += behouden;
+
+        for (int p = 0; p < behouden * dimensie; p++) {
+            if (p > 0) {
+                buffer.append(' ');
+            }
+            format(coordinaten[p]);
+        }
+        // Overgebleven coordinaten bij een onvolledige laatste positie niet kwijtraken
+        for (int p = posities * dimensie; p < aantal; p++) {
+            buffer.append(' ');
+            format(coordinaten[p]);
+        }
+    }
+
+    // GML 2 stijl "x,y x,y": alleen afronden, de scheidingstekens blijven staan
+    private void writeCoordinates(String gml, int start, int einde) {
+        int i = start;
+        while (i < einde) {
+            char c = gml.charAt(i);
+            if (c == ',' || Character.isWhitespace(c)) {
+                buffer.append(c);
+                i++;
+                continue;
+            }
+            int getal = i;
+            while (i < einde && gml.charAt(i) != ',' && !Character.isWhitespace(gml.charAt(i))) {
+                i++;
+            }
+            format(round(parse(gml, getal, i)));
+        }
+    }
+
+    // Verwijdert dubbele en collineaire punten in coordinaten, geeft het aantal overgebleven posities terug
+    private int removePunten(int dimensie, int posities, int minimum) {
+        double tolerantie = 0.5 / eenheid;
+        int behouden = 0;
+        int offset = posities * dimensie;
+        ensureCapacity(offset * 2);
+
+        for (int p = 0; p < posities; p++) {
+            if (behouden > 0 && gelijk(p * dimensie, offset + (behouden - 1) * dimensie, dimensie)) {
+                continue;
+            }
+            if (behouden >= 2 && dimensie == 2
+                    && collineair(offset + (behouden - 2) * 2, offset + (behouden - 1) * 2, p * 2, tolerantie)) {
+                behouden--;
+            }
+            System.arraycopy(coordinaten, p * dimensie, coordinaten, offset + behouden * dimensie, dimensie);
+            behouden++;
+        }
+
+        if (behouden < minimum) {
+            return posities;
+        }
+        System.arraycopy(coordinaten, offset, coordinaten, 0, behouden * dimensie);
+        return behouden;
+    }
+
+    private boolean gelijk(int a, int b, int dimensie) {
+        for (int d = 0; d < dimensie; d++) {
+            if (coordinaten[a + d] != coordinaten[b + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Ligt b tussen a en c, op minder dan de tolerantie van de lijn a-c
+    private boolean collineair(int a, int b, int c, double tolerantie) {
+        double abx = coordinaten[b] - coordinaten[a];
+        double aby = coordinaten[b + 1] - coordinaten[a + 1];
+        double bcx = coordinaten[c] - coordinaten[b];
+        double bcy = coordinaten[c + 1] - coordinaten[b + 1];
+        if (abx * bcx + aby * bcy <= 0) {
+            return false;
+        }
+        double acx = abx + bcx;
+        double acy = aby + bcy;
+        double cross = abx * acy - aby * acx;
+        return Math.abs(cross) <= tolerantie * Math.sqrt(acx * acx + acy * acy);
+    }
+
+    private void add(double waarde) {
+        ensureCapacity(aantal + 1);
+        coordinaten[aantal++] = waarde;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > coordinaten.length) {
+            double[] groter = new double[Math.max(capacity, coordinaten.length * 2)];
+            System.arraycopy(coordinaten, 0, groter, 0, aantal);
+            coordinaten = groter;
+        }
+    }
+
+    private double round(double waarde) {
+        return Math.round(waarde * eenheid) / (double) eenheid;
+    }
+
+    // Schrijft een afgeronde waarde zonder overbodige nullen, zonder String.format of BigDecimal
+    private void format(double waarde) {
+        long geschaald = Math.round(waarde * eenheid);
+        if (geschaald < 0) {
+            buffer.append('-');
+            geschaald = -geschaald;
+        }
+        buffer.append(geschaald / eenheid);
+        long fractie = geschaald % eenheid;
+        if (fractie == 0) {
+            return;
+        }
+
+        int cijfers = decimalen;
+        while (fractie % 10 == 0) {
+            fractie /= 10;
+            cijfers--;
+        }
+        buffer.append('.');
+        for (long grens = (long) POW10[cijfers - 1]; grens > fractie && grens > 1; grens /= 10) {
+            buffer.append('0');
+        }
+        buffer.append(fractie);
+    }
+
+    // Snel pad voor gewone decimale getallen tot 15 cijfers, anders Double.parseDouble
+    static double parse(String gml, int start, int einde) {
+        int i = start;
+        boolean negatief = false;
+        if (gml.charAt(i) == '-' || gml.charAt(i) == '+') {
+            negatief = gml.charAt(i) == '-';
+            i++;
+        }
+
+        long mantisse = 0;
+        int gelezen = 0;
+        int cijfers = 0;
+        int decimalen = 0;
+        boolean punt = false;
+        for (; i < einde; i++) {
+            char c = gml.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantisse = mantisse * 10 + (c - '0');
+                gelezen++;
+                if (mantisse != 0) {
+                    cijfers++;
+                }
+                if (punt) {
+                    decimalen++;
+                }
+            } else if (c == '.' && !punt) {
+                punt = true;
+            } else {
+                break;
+            }
+        }
+
+        if (i < einde || gelezen == 0 || cijfers > 15 || decimalen > 22) {
+            try {
+                return Double.parseDouble(gml.substring(start, einde));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Ongeldige coordinaat '" + gml.substring(start, einde) + "'", e);
+            }
+        }
+        double waarde = mantisse / POW10[decimalen];
+        return negatief ? -waarde : waarde;
+    }
+
+    static class Result {
+        private final String gml;
+        private final int puntenVoor;
+        private final int puntenNa;
+
+        private Result(String gml, int puntenVoor, int puntenNa) {
+            this.gml = gml;
+            this.puntenVoor = puntenVoor;
+            this.puntenNa = puntenNa;
+        }
+
+        String getGml() {
+            return gml;
+        }
+
+        int getPuntenVoor() {
+            return puntenVoor;
+        }
+
+        int getPuntenNa() {
+            return puntenNa;
+        }
+    }
+}
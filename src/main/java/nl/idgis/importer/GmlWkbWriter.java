@@ -0,0 +1,373 @@
+package nl.idgis.importer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Zet een GML fragment (zoals {@link GmlWriter} dat schrijft) om naar ISO WKB, big endian, zonder PostGIS. Het
+ * fragment wordt eerst in een kleine boom van de GML elementen met hun coordinaten omgezet, die daarna als WKB
+ * geschreven wordt. Ondersteund zijn Point, LineString, Curve (met LineStringSegments), Polygon, Surface (met
+ * PolygonPatches), de Multi varianten daarvan en MultiGeometry, in 2 of 3 dimensies. Bogen en andere
+ * niet-lineaire segmenten hebben geen WKB equivalent en geven een fout.
+ */
+final class GmlWkbWriter {
+
+    private static final int POINT = 1;
+    private static final int LINESTRING = 2;
+    private static final int POLYGON = 3;
+    private static final int MULTIPOINT = 4;
+    private static final int MULTILINESTRING = 5;
+    private static final int MULTIPOLYGON = 6;
+    private static final int GEOMETRYCOLLECTION = 7;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    private GmlWkbWriter() {
+    }
+
+    static byte[] write(String gml) {
+        GmlWkbWriter writer = new GmlWkbWriter();
+        try {
+            writer.geometrie(parse(gml));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.bytes.toByteArray();
+    }
+
+    private void geometrie(Element element) throws IOException {
+        switch (element.naam) {
+            case "Point":
+                Posities positie = posities(element);
+                if (positie.aantal != positie.dimensie) {
+                    throw new IllegalArgumentException("Een gml:Point moet precies een positie hebben");
+                }
+                header(POINT, positie.dimensie);
+                coordinaten(positie);
+                break;
+            case "LineString":
+            case "Curve":
+                Posities lijn = posities(element);
+                header(LINESTRING, lijn.dimensie);
+                lijn(lijn);
+                break;
+            case "Polygon":
+            case "PolygonPatch":
+                polygoon(element);
+                break;
+            case "Surface":
+                List<Element> patches = vlakken(element);
+                if (patches.size() == 1) {
+                    polygoon(patches.get(0));
+                } else {
+                    multi(MULTIPOLYGON, element, patches);
+                }
+                break;
+            case "MultiPoint":
+                multi(MULTIPOINT, element, leden(element));
+                break;
+            case "MultiCurve":
+            case "MultiLineString":
+                multi(MULTILINESTRING, element, leden(element));
+                break;
+            case "MultiSurface":
+            case "MultiPolygon":
+                // Een Surface met meer patches telt als zoveel polygonen, een MultiPolygon kan geen MultiPolygon bevatten
+                List<Element> polygonen = new ArrayList<>();
+                for (Element lid : leden(element)) {
+                    polygonen.addAll(vlakken(lid));
+                }
+                multi(MULTIPOLYGON, element, polygonen);
+                break;
+            case "MultiGeometry":
+                multi(GEOMETRYCOLLECTION, element, leden(element));
+                break;
+            default:
+                throw new IllegalArgumentException("Geometrietype gml:" + element.naam + " kan niet als WKB geschreven worden");
+        }
+    }
+
+    private void multi(int type, Element element, List<Element> leden) throws IOException {
+        int dimensie = eersteDimensie(element);
+        header(type, dimensie > 0 ? dimensie : element.dimensie);
+        out.writeInt(leden.size());
+        for (Element lid : leden) {
+            geometrie(lid);
+        }
+    }
+
+    private void polygoon(Element element) throws IOException {
+        List<Posities> ringen = new ArrayList<>();
+        for (Element rand : element.kinderen) {
+            if (rand.naam.equals("exterior") || rand.naam.equals("outerBoundaryIs")) {
+                rand.kinderen.forEach(ring -> ringen.add(0, posities(ring)));
+            } else if (rand.naam.equals("interior") || rand.naam.equals("innerBoundaryIs")) {
+                rand.kinderen.forEach(ring -> ringen.add(posities(ring)));
+            }
+        }
+        if (ringen.isEmpty()) {
+            throw new IllegalArgumentException("Een gml:" + element.naam + " zonder ringen");
+        }
+
+        header(POLYGON, ringen.get(0).dimensie);
+        out.writeInt(ringen.size());
+        for (Posities ring : ringen) {
+            if (ring.dimensie != ringen.get(0).dimensie) {
+                throw new IllegalArgumentException("Ringen met een verschillend aantal dimensies in een gml:" + element.naam);
+            }
+            lijn(ring);
+        }
+    }
+
+    private void lijn(Posities posities) throws IOException {
+        out.writeInt(posities.aantal / posities.dimensie);
+        coordinaten(posities);
+    }
+
+    private void header(int type, int dimensie) throws IOException {
+        if (dimensie != 2 && dimensie != 3) {
+            throw new IllegalArgumentException("Alleen 2 of 3 dimensies kunnen als WKB geschreven worden, niet " + dimensie);
+        }
+        out.writeByte(0);
+        out.writeInt(dimensie == 3 ? type + 1000 : type);
+    }
+
+    private void coordinaten(Posities posities) throws IOException {
+        for (int i = 0; i < posities.aantal; i++) {
+            out.writeDouble(posities.coordinaten[i]);
+        }
+    }
+
+    // De dimensie van de eerste coordinaten in het element, 0 als er geen coordinaten zijn
+    private static int eersteDimensie(Element element) {
+        if (element.coordinaten != null) {
+            return element.dimensie;
+        }
+        for (Element kind : element.kinderen) {
+            int dimensie = eersteDimensie(kind);
+            if (dimensie > 0) {
+                return dimensie;
+            }
+        }
+        return 0;
+    }
+
+    // De geometrieen binnen de member(s) elementen van een Multi geometrie
+    private static List<Element> leden(Element element) {
+        List<Element> leden = new ArrayList<>();
+        for (Element member : element.kinderen) {
+            leden.addAll(member.kinderen);
+        }
+        return leden;
+    }
+
+    // De polygonen van een Polygon of Surface
+    private static List<Element> vlakken(Element element) {
+        List<Element> vlakken = new ArrayList<>();
+        if (element.naam.equals("Surface")) {
+            for (Element patches : element.kinderen) {
+                vlakken.addAll(patches.kinderen);
+            }
+        } else {
+            vlakken.add(element);
+        }
+        return vlakken;
+    }
+
+    /**
+     * Alle posities binnen het element achter elkaar. Bij een Curve of Ring sluiten de segmenten op elkaar aan, het
+     * gedeelde punt wordt dan maar een keer opgenomen.
+     */
+    private static Posities posities(Element element) {
+        Posities posities = new Posities(element.dimensie);
+        verzamel(element, posities);
+        return posities;
+    }
+
+    private static void verzamel(Element element, Posities posities) {
+        switch (element.naam) {
+            case "Arc":
+            case "ArcString":
+            case "ArcByCenterPoint":
+            case "Circle":
+            case "CircleByCenterPoint":
+            case "ArcByBulge":
+            case "ArcStringByBulge":
+            case "CubicSpline":
+            case "BSpline":
+            case "Bezier":
+            case "Clothoid":
+            case "GeodesicString":
+            case "OffsetCurve":
+                throw new IllegalArgumentException("Niet-lineair segment gml:" + element.naam + " kan niet als WKB geschreven worden");
+            case "LineStringSegment":
+            case "LineString":
+            case "Curve":
+                posities.segment();
+                break;
+            default:
+                break;
+        }
+        if (element.coordinaten != null) {
+            posities.add(element.coordinaten, element.aantal, element.dimensie);
+        }
+        for (Element kind : element.kinderen) {
+            verzamel(kind, posities);
+        }
+    }
+
+    private static Element parse(String gml) {
+        List<Element> stack = new ArrayList<>();
+        Element root = null;
+
+        int i = 0;
+        while (i < gml.length()) {
+            int tag = gml.indexOf('<', i);
+            if (tag < 0) {
+                tag = gml.length();
+            }
+            if (tag > i && !stack.isEmpty()) {
+                Element element = stack.get(stack.size() - 1);
+                if (element.naam.equals("pos") || element.naam.equals("posList")) {
+                    element.getallen(gml, i, tag, false);
+                } else if (element.naam.equals("coordinates")) {
+                    element.getallen(gml, i, tag, true);
+                }
+            }
+            if (tag == gml.length()) {
+                break;
+            }
+
+            int einde = gml.indexOf('>', tag);
+            if (einde < 0) {
+                throw new IllegalArgumentException("Ongeldige GML, een tag wordt niet afgesloten");
+            }
+            char c = gml.charAt(tag + 1);
+            if (c == '/') {
+                stack.remove(stack.size() - 1);
+            } else if (c != '?' && c != '!') {
+                Element ouder = stack.isEmpty() ? null : stack.get(stack.size() - 1);
+                Element element = new Element(GmlSimplifier.localName(gml, tag + 1, einde), dimensie(gml, tag, einde, ouder));
+                if (ouder != null) {
+                    ouder.kinderen.add(element);
+                } else if (root == null) {
+                    root = element;
+                }
+                if (gml.charAt(einde - 1) != '/') {
+                    stack.add(element);
+                }
+            }
+            i = einde + 1;
+        }
+
+        if (root == null) {
+            throw new IllegalArgumentException("Ongeldige GML, geen geometrie gevonden");
+        }
+        return root;
+    }
+
+    private static int dimensie(String gml, int tag, int einde, Element ouder) {
+        int srsDimension = GmlSimplifier.attribuut(gml, tag, einde, "srsDimension");
+        if (srsDimension >= 0) {
+            return Integer.parseInt(gml.substring(srsDimension, gml.indexOf('"', srsDimension)).trim());
+        }
+        return ouder != null ? ouder.dimensie : 2;
+    }
+
+    private static class Element {
+
+        private final String naam;
+        private final List<Element> kinderen = new ArrayList<>(2);
+        private int dimensie;
+        private double[] coordinaten;
+        private int aantal;
+
+        Element(String naam, int dimensie) {
+            this.naam = naam;
+            this.dimensie = dimensie;
+        }
+
+        // pos en posList zijn gescheiden door witruimte, GML 2 coordinates "x,y x,y" bepaalt zelf de dimensie
+        void getallen(String gml, int start, int einde, boolean tuples) {
+            if (coordinaten == null) {
+                coordinaten = new double[64];
+            }
+            int tupleDimensie = 0;
+            int i = start;
+            while (i < einde) {
+                char c = gml.charAt(i);
+                if (c == ',' || Character.isWhitespace(c)) {
+                    if (tuples && tupleDimensie == 0 && Character.isWhitespace(c) && aantal > 0) {
+                        tupleDimensie = aantal;
+                    }
+                    i++;
+                    continue;
+                }
+                int getal = i;
+                while (i < einde && gml.charAt(i) != ',' && !Character.isWhitespace(gml.charAt(i))) {
+                    i++;
+                }
+                if (aantal == coordinaten.length) {
+                    coordinaten = Arrays.copyOf(coordinaten, aantal * 2);
+                }
+                coordinaten[aantal++] = GmlSimplifier.parse(gml, getal, i);
+            }
+            if (tuples) {
+                dimensie = tupleDimensie > 0 ? tupleDimensie : aantal;
+            }
+            if (aantal % dimensie != 0) {
+                throw new IllegalArgumentException(aantal + " coordinaten is geen veelvoud van de dimensie " + dimensie);
+            }
+        }
+    }
+
+    // De dimensie volgt de eerste posities, GML 2 coordinates bepaalt die pas in het element zelf
+    private static class Posities {
+
+        private int dimensie;
+        private double[] coordinaten = new double[64];
+        private int aantal;
+        private boolean nieuwSegment;
+
+        Posities(int dimensie) {
+            this.dimensie = dimensie;
+        }
+
+        void segment() {
+            nieuwSegment = aantal > 0;
+        }
+
+        void add(double[] waarden, int lengte, int waardenDimensie) {
+            if (aantal == 0) {
+                dimensie = waardenDimensie;
+            } else if (waardenDimensie != dimensie) {
+                throw new IllegalArgumentException("Posities met " + waardenDimensie + " dimensies in een geometrie met " + dimensie + " dimensies");
+            }
+            int van = 0;
+            if (nieuwSegment && lengte >= dimensie && gelijkAanLaatste(waarden)) {
+                van = dimensie;
+            }
+            nieuwSegment = false;
+            if (aantal + lengte - van > coordinaten.length) {
+                coordinaten = Arrays.copyOf(coordinaten, Math.max(coordinaten.length * 2, aantal + lengte - van));
+            }
+            System.arraycopy(waarden, van, coordinaten, aantal, lengte - van);
+            aantal += lengte - van;
+        }
+
+        private boolean gelijkAanLaatste(double[] waarden) {
+            for (int d = 0; d < dimensie; d++) {
+                if (coordinaten[aantal - dimensie + d] != waarden[d]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
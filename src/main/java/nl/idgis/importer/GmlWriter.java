@@ -0,0 +1,301 @@
+package nl.idgis.importer;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.Arrays;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Schrijft een GML element, uit een DOM of vanaf een StAX reader, zonder inspringing weg als losse string.
+ * Witruimte tussen de elementen (de inspringing uit het bronbestand) wordt weggelaten. Namespaces die buiten
+ * het element gedeclareerd zijn worden op het eerste element waar ze gebruikt worden alsnog gedeclareerd,
+ * zodat het fragment zelfstandig te parsen is door ST_GEOMFROMGML.
+ *
+ * Iedere thread heeft een eigen instantie, de buffer wordt tussen de locaties door hergebruikt.
+ */
+final class GmlWriter {
+
+    private static final ThreadLocal<GmlWriter> INSTANCE = ThreadLocal.withInitial(GmlWriter::new);
+
+    // Na een uitzonderlijk grote geometrie de buffer niet vasthouden
+    private static final int MAX_BUFFER_SIZE = 1 << 20;
+
+    private StringBuilder buffer = new StringBuilder(4096);
+
+    // Namespaces die binnen het fragment gedeclareerd zijn, als stack
+    private String[] prefixes = new String[8];
+    private String[] uris = new String[8];
+    private int scopeSize;
+
+    private int[] marks = new int[16];
+
+    private GmlWriter() {
+    }
+
+    static String write(Element element) {
+        long start = System.nanoTime();
+        GmlWriter writer = INSTANCE.get();
+        writer.reset();
+        writer.writeElement(element);
+        return writer.result(start);
+    }
+
+    /**
+     * Schrijft het element waar de reader op staat, inclusief alle kinderen, weg.
+     * Na afloop staat de reader op het bijbehorende END_ELEMENT.
+     */
+    static String write(XMLStreamReader reader) throws XMLStreamException {
+        long start = System.nanoTime();
+        GmlWriter writer = INSTANCE.get();
+        writer.reset();
+        writer.writeElement(reader);
+        return writer.result(start);
+    }
+
+    // Ook na een exceptie halverwege het vorige fragment moet de writer weer leeg beginnen
+    private void reset() {
+        if (buffer.capacity() > MAX_BUFFER_SIZE) {
+            buffer = new StringBuilder(4096);
+        } else {
+            buffer.setLength(0);
+        }
+        scopeSize = 0;
+    }
+
+    private String result(long start) {
+        String result = buffer.toString();
+        ImportMetrics.current().record(ImportMetrics.GML_SERIALISATIE, System.nanoTime() - start);
+        return result;
+    }
+
+    private void writeElement(Element element) {
+        int mark = scopeSize;
+
+        buffer.append('<').append(element.getNodeName());
+
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+                String prefix = XMLConstants.XMLNS_ATTRIBUTE.equals(attribute.getNodeName()) ? "" : attribute.getLocalName();
+                declare(prefix, attribute.getValue());
+            }
+        }
+        ensureDeclared(element.getPrefix(), element.getNamespaceURI());
+
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            String namespace = attribute.getNamespaceURI();
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(namespace)) {
+                continue;
+            }
+            if (namespace != null && !namespace.isEmpty()) {
+                ensureDeclared(attribute.getPrefix(), namespace);
+            }
+            appendAttribute(attribute.getNodeName(), attribute.getValue());
+        }
+
+        Node child = element.getFirstChild();
+        if (child == null) {
+            buffer.append("/>");
+        } else {
+            buffer.append('>');
+            for (; child != null; child = child.getNextSibling()) {
+                switch (child.getNodeType()) {
+                    case Node.ELEMENT_NODE:
+                        writeElement((Element) child);
+                        break;
+                    case Node.TEXT_NODE:
+                    case Node.CDATA_SECTION_NODE:
+                        String text = child.getNodeValue();
+                        if (!text.isBlank()) {
+                            appendText(text);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            buffer.append("</").append(element.getNodeName()).append('>');
+        }
+
+        scopeSize = mark;
+    }
+
+    private void writeElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 0;
+        while (true) {
+            switch (reader.getEventType()) {
+                case START_ELEMENT:
+                    if (depth == marks.length) {
+                        marks = Arrays.copyOf(marks, depth * 2);
+                    }
+                    marks[depth++] = scopeSize;
+
+                    buffer.append('<');
+                    appendName(reader.getPrefix(), reader.getLocalName());
+                    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                        declare(nonNull(reader.getNamespacePrefix(i)), nonNull(reader.getNamespaceURI(i)));
+                    }
+                    ensureDeclared(reader.getPrefix(), reader.getNamespaceURI());
+
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        String namespace = reader.getAttributeNamespace(i);
+                        String prefix = reader.getAttributePrefix(i);
+                        if (namespace != null && !namespace.isEmpty()) {
+                            ensureDeclared(prefix, namespace);
+                        }
+                        buffer.append(' ');
+                        appendName(prefix, reader.getAttributeLocalName(i));
+                        appendValue(reader.getAttributeValue(i));
+                    }
+                    buffer.append('>');
+                    break;
+                case END_ELEMENT:
+                    buffer.append("</");
+                    appendName(reader.getPrefix(), reader.getLocalName());
+                    buffer.append('>');
+                    scopeSize = marks[--depth];
+                    break;
+                case CHARACTERS:
+                case CDATA:
+                    if (reader.isWhiteSpace()) {
+                        break;
+                    }
+                    appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                default:
+                    break;
+            }
+
+            if (depth == 0) {
+                return;
+            }
+            reader.next();
+        }
+    }
+
+    private void ensureDeclared(String prefix, String uri) {
+        prefix = nonNull(prefix);
+        uri = nonNull(uri);
+
+        for (int i = scopeSize - 1; i >= 0; i--) {
+            if (prefixes[i].equals(prefix)) {
+                if (!uris[i].equals(uri)) {
+                    declare(prefix, uri);
+                }
+                return;
+            }
+        }
+        // Zonder namespace hoeft er alleen iets gedeclareerd te worden als het fragment zelf een default namespace zet
+        if (!uri.isEmpty()) {
+            declare(prefix, uri);
+        }
+    }
+
+    private void declare(String prefix, String uri) {
+        if (scopeSize == prefixes.length) {
+            prefixes = Arrays.copyOf(prefixes, scopeSize * 2);
+            uris = Arrays.copyOf(uris, scopeSize * 2);
+        }
+        prefixes[scopeSize] = prefix;
+        uris[scopeSize] = uri;
+        scopeSize++;
+
+        appendAttribute(prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix, uri);
+    }
+
+    private void appendName(String prefix, String localName) {
+        if (prefix != null && !prefix.isEmpty()) {
+            buffer.append(prefix).append(':');
+        }
+        buffer.append(localName);
+    }
+
+    private void appendAttribute(String name, String value) {
+        buffer.append(' ').append(name);
+        appendValue(value);
+    }
+
+    private void appendValue(String value) {
+        buffer.append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    buffer.append("&amp;");
+                    break;
+                case '<':
+                    buffer.append("&lt;");
+                    break;
+                case '"':
+                    buffer.append("&quot;");
+                    break;
+                case '\t':
+                    buffer.append("&#9;");
+                    break;
+                case '\n':
+                    buffer.append("&#10;");
+                    break;
+                case '\r':
+                    buffer.append("&#13;");
+                    break;
+                default:
+                    buffer.append(c);
+            }
+        }
+        buffer.append('"');
+    }
+
+    // Coordinaten bevatten geen tekens die ge-escaped moeten worden, dus zoveel mogelijk in een keer toevoegen
+    private void appendText(String text) {
+        int from = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity = getEntity(text.charAt(i));
+            if (entity != null) {
+                buffer.append(text, from, i).append(entity);
+                from = i + 1;
+            }
+        }
+        buffer.append(text, from, text.length());
+    }
+
+    private void appendText(char[] text, int start, int length) {
+        int from = start;
+        for (int i = start; i < start + length; i++) {
+            String entity = getEntity(text[i]);
+            if (entity != null) {
+                buffer.append(text, from, i - from).append(entity);
+                from = i + 1;
+            }
+        }
+        buffer.append(text, from, start + length - from);
+    }
+
+    private static String getEntity(char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            default:
+                return null;
+        }
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+}
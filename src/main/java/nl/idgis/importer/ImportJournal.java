@@ -0,0 +1,211 @@
+package nl.idgis.importer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Journal van een import met een commit interval. Na iedere gecommitte checkpoint worden de locatie ids van de
+ * locaties sinds de vorige checkpoint, in documentvolgorde, aan het journal toegevoegd. Gaat de import halverwege
+ * mis, dan gaat een nieuwe import van hetzelfde bestand verder na de laatste checkpoint: de locaties daarvoor
+ * worden niet opnieuw verwerkt, hun locatie ids komen uit het journal. Na een geslaagde import wordt het journal
+ * verwijderd.
+ *
+ * Het journal begint met het bestand, de grootte en wijzigingsdatum daarvan, de naam en de regelingexpressie. Komt
+ * een daarvan niet overeen, dan wordt het journal genegeerd en begint de import opnieuw. Daarna volgt, als het
+ * bestand gevalideerd is, een regel met het geometrietype uit de validatie, zodat een hervatte import het bestand
+ * niet opnieuw hoeft te valideren. Iedere checkpoint is een regel met locatie ids die op een ';' eindigt, een half
+ * weggeschreven laatste regel wordt overgeslagen.
+ */
+class ImportJournal {
+
+    private static final String HEADER = "# gio-importer journal";
+    private static final String GEVALIDEERD = "gevalideerd=";
+
+    private final File file;
+    private final List<Integer> locatieIds;
+    private final Writer writer;
+    private String gevalideerd;
+
+    private ImportJournal(File file, List<Integer> locatieIds, String gevalideerd, Writer writer) {
+        this.file = file;
+        this.locatieIds = locatieIds;
+        this.gevalideerd = gevalideerd;
+        this.writer = writer;
+    }
+
+    /**
+     * Opent het journal voor het GIO in de gegeven directory, of maakt een nieuw journal aan.
+     */
+    static ImportJournal open(File directory, GioImportJob job) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("De directory voor het journal kan niet aangemaakt worden: " + directory.getAbsolutePath());
+        }
+
+        File file = new File(directory, job.getFile().getName() + ".journal");
+        List<String> header = createHeader(job);
+        List<Integer> locatieIds = new ArrayList<>();
+        String[] gevalideerd = new String[1];
+        try {
+            long lengte = file.exists() ? read(file, header, locatieIds, gevalideerd) : -1;
+            boolean hervat = lengte >= 0;
+            if (hervat) {
+                System.out.printf("Import van %s wordt hervat na locatie %d%n", job.getFile().getName(), locatieIds.size());
+            } else {
+                locatieIds.clear();
+                gevalideerd[0] = null;
+                Files.write(file.toPath(), (String.join("\n", header) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            FileOutputStream out = new FileOutputStream(file, true);
+            if (hervat && lengte < file.length()) {
+                // Een half weggeschreven checkpoint aan het einde afkappen
+                out.getChannel().truncate(lengte);
+            } else if (hervat && lengte > file.length()) {
+                // De laatste checkpoint is compleet, alleen het regeleinde ontbreekt
+                out.write('\n');
+            }
+
+            return new ImportJournal(file, locatieIds, gevalideerd[0], new OutputStreamWriter(out, StandardCharsets.UTF_8) {
+                @Override
+                public void flush() throws IOException {
+                    super.flush();
+                    out.getFD().sync();
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Het journal kon niet geopend worden: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Het aantal locaties, vanaf het begin van het GIO, dat al gecommit is.
+     */
+    int size() {
+        return locatieIds.size();
+    }
+
+    List<Integer> getLocatieIds() {
+        return locatieIds;
+    }
+
+    /**
+     * Of het bestand bij deze of een eerdere, onderbroken import al gevalideerd is.
+     */
+    boolean isGevalideerd() {
+        return gevalideerd != null;
+    }
+
+    /**
+     * Het geometrietype uit de validatie, null als de validatie geen locaties vond.
+     */
+    String getGeometrietype() {
+        return gevalideerd == null || gevalideerd.isEmpty() ? null : gevalideerd;
+    }
+
+    /**
+     * Legt vast dat het bestand gevalideerd is. Kan alleen voor de eerste checkpoint.
+     */
+    void setGevalideerd(String geometrietype) {
+        if (!locatieIds.isEmpty()) {
+            throw new IllegalStateException("De validatie kan alleen voor de eerste checkpoint in het journal vastgelegd worden");
+        }
+        String regel = GEVALIDEERD + (geometrietype != null ? geometrietype : "");
+        try {
+            writer.write(regel + "\n");
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Het journal kon niet bijgewerkt worden: " + file.getAbsolutePath(), e);
+        }
+        gevalideerd = regel.substring(GEVALIDEERD.length());
+    }
+
+    /**
+     * Voegt een gecommitte checkpoint toe. Wordt pas teruggegeven als de regel op schijf staat.
+     */
+    void append(List<Integer> nieuw) {
+        if (nieuw.isEmpty()) {
+            return;
+        }
+
+        try {
+            StringBuilder line = new StringBuilder(nieuw.size() * 8);
+            for (int i = 0; i < nieuw.size(); i++) {
+                line.append(i == 0 ? "" : ",").append(nieuw.get(i));
+            }
+            writer.write(line.append(";\n").toString());
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Het journal kon niet bijgewerkt worden: " + file.getAbsolutePath(), e);
+        }
+        locatieIds.addAll(nieuw);
+    }
+
+    void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Het journal kon niet gesloten worden: " + e.getMessage());
+        }
+    }
+
+    void delete() {
+        close();
+        if (!file.delete()) {
+            System.err.println("Het journal kon niet verwijderd worden: " + file.getAbsolutePath());
+        }
+    }
+
+    private static List<String> createHeader(GioImportJob job) {
+        File gio = job.getFile().getAbsoluteFile();
+        List<String> header = new ArrayList<>();
+        header.add(HEADER);
+        header.add("bestand=" + gio.getPath());
+        header.add("grootte=" + gio.length());
+        header.add("gewijzigd=" + gio.lastModified());
+        header.add("naam=" + job.getGioName());
+        header.add("expressie=" + job.getRegelingExpression());
+        return header;
+    }
+
+    // Geeft de lengte tot en met de laatste volledige checkpoint terug, of -1 als de header niet overeenkomt
+    private static long read(File file, List<String> header, List<Integer> locatieIds, String[] gevalideerd) throws IOException {
+        long lengte = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            for (String expected : header) {
+                String line = reader.readLine();
+                if (!Objects.equals(expected, line)) {
+                    System.out.printf("Journal %s hoort bij een ander bestand of een andere versie daarvan, de import begint opnieuw%n",
+                            file.getName());
+                    return -1;
+                }
+                lengte += expected.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(GEVALIDEERD) && locatieIds.isEmpty()) {
+                    gevalideerd[0] = line.substring(GEVALIDEERD.length());
+                } else if (line.endsWith(";")) {
+                    for (String id : line.substring(0, line.length() - 1).split(",")) {
+                        locatieIds.add(Integer.parseInt(id));
+                    }
+                } else {
+                    break;
+                }
+                lengte += line.length() + 1;
+            }
+        }
+
+        return lengte;
+    }
+}
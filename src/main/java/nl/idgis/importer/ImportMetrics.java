@@ -0,0 +1,212 @@
+package nl.idgis.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * De metingen van een enkele import: tijdsduren als histogram en tellers. Alle metingen worden ook doorgegeven
+ * aan de {@link MetricsRegistry}. Na afloop levert dit een verslag op, als tekst en als JSON.
+ *
+ * De GML serialisatie gebeurt diep in de parsers, die metingen gaan via {@link #current()}: de import koppelt
+ * zijn metingen met {@link #bind()} aan de thread van de parser.
+ */
+class ImportMetrics implements MetricsRegistry {
+
+    static final String PARSE = "gio.parse";
+    static final String GML_SERIALISATIE = "gml.serialisatie";
+    static final String CHUNK = "chunk.schrijven";
+    static final String DB_GEOMETRIE_LOCK = "db.geometrie.lock";
+    static final String DB_GEOMETRIE_LOOKUP = "db.geometrie.lookup";
+    static final String DB_GEOMETRIE_INSERT = "db.geometrie_locatie.insert";
+    static final String DB_HASH_UPSERT = "db.geometrie_hash.upsert";
+    static final String DB_GEOMETRIE_VERGELIJK = "db.geometrie.vergelijk";
+    static final String DB_STAGING_COPY = "db.staging.copy";
+    static final String DB_GROEP_INSERT = "db.groep.insert";
+    static final String DB_GROEP_LINK = "db.groep_locatie.link";
+    static final String DB_INFORMATIEOBJECTVERSIE_INSERT = "db.informatieobjectversie.insert";
+    static final String DB_GML_CONVERSIE = "db.gml.conversie";
+    static final String RATE_WACHT = "rate.wacht";
+
+    static final String LOCATIES = "locaties";
+    static final String GEOMETRIEEN_NIEUW = "geometrieen.nieuw";
+    static final String ADAPTIEF_VERLAAGD = "adaptief.verlaagd";
+
+    private static final ThreadLocal<ImportMetrics> CURRENT = new ThreadLocal<>();
+    private static final ImportMetrics NOOP = new ImportMetrics(MetricsRegistry.NOOP, "");
+
+    private final MetricsRegistry registry;
+    private final String naam;
+    private final long start = System.nanoTime();
+    private volatile long einde;
+
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    ImportMetrics(MetricsRegistry registry, String naam) {
+        this.registry = registry;
+        this.naam = naam;
+    }
+
+    /**
+     * De metingen die aan de huidige thread gekoppeld zijn. Zonder koppeling gaan de metingen nergens heen.
+     */
+    static ImportMetrics current() {
+        ImportMetrics metrics = CURRENT.get();
+        return metrics != null ? metrics : NOOP;
+    }
+
+    /**
+     * Koppelt deze metingen aan de huidige thread, tot de teruggegeven scope gesloten wordt.
+     */
+    Scope bind() {
+        ImportMetrics vorige = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (vorige != null) {
+                CURRENT.set(vorige);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    @Override
+    public void record(String name, long nanos) {
+        if (this == NOOP) {
+            return;
+        }
+        timers.computeIfAbsent(name, key -> new LatencyHistogram()).record(nanos);
+        registry.record(name, nanos);
+    }
+
+    @Override
+    public void increment(String name, long amount) {
+        if (this == NOOP) {
+            return;
+        }
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+        registry.increment(name, amount);
+    }
+
+    long getCount(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    LatencyHistogram getHistogram(String timer) {
+        return timers.get(timer);
+    }
+
+    double getSeconden() {
+        long tot = einde != 0 ? einde : System.nanoTime();
+        return (tot - start) / 1e9;
+    }
+
+    void stop() {
+        einde = System.nanoTime();
+    }
+
+    String toText() {
+        StringBuilder text = new StringBuilder();
+        double seconden = getSeconden();
+        long locaties = getCount(LOCATIES);
+        text.append(String.format(Locale.ROOT, "Verslag van de import van %s%n", naam));
+        text.append(String.format(Locale.ROOT, "  duur:       %.1f s%n", seconden));
+        text.append(String.format(Locale.ROOT, "  locaties:   %d (%.0f per seconde)%n", locaties, seconden > 0 ? locaties / seconden : 0));
+        text.append(String.format(Locale.ROOT, "  piek heap:  %d MB (hele JVM)%n", getPeakHeap() / (1024 * 1024)));
+        new TreeMap<>(counters).forEach((name, value) -> {
+            if (!LOCATIES.equals(name)) {
+                text.append(String.format(Locale.ROOT, "  %s: %d%n", name, value.sum()));
+            }
+        });
+
+        text.append(String.format(Locale.ROOT, "  %-34s %9s %10s %9s %9s %9s %9s%n", "meting", "aantal", "totaal ms", "gem ms", "p50 ms", "p99 ms", "max ms"));
+        new TreeMap<>(timers).forEach((name, histogram) -> text.append(String.format(Locale.ROOT,
+                "  %-34s %9d %10.0f %9.3f %9.3f %9.3f %9.3f%n", name, histogram.getCount(), histogram.getTotalNanos() / 1e6,
+                histogram.getMeanMillis(), histogram.getPercentileMillis(0.5), histogram.getPercentileMillis(0.99),
+                histogram.getMaxNanos() / 1e6)));
+
+        return text.toString();
+    }
+
+    String toJson() {
+        double seconden = getSeconden();
+        long locaties = getCount(LOCATIES);
+
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"gio\":").append(quote(naam));
+        json.append(String.format(Locale.ROOT, ",\"seconden\":%.3f", seconden));
+        json.append(String.format(Locale.ROOT, ",\"locatiesPerSeconde\":%.1f", seconden > 0 ? locaties / seconden : 0));
+        json.append(",\"piekHeapJvmBytes\":").append(getPeakHeap());
+
+        json.append(",\"tellers\":{");
+        String separator = "";
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            json.append(separator).append(quote(entry.getKey())).append(':').append(entry.getValue().sum());
+            separator = ",";
+        }
+
+        json.append("},\"metingen\":{");
+        separator = "";
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(timers).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            json.append(separator).append(quote(entry.getKey())).append(String.format(Locale.ROOT,
+                    ":{\"aantal\":%d,\"totaalMs\":%.3f,\"gemiddeldMs\":%.3f,\"p50Ms\":%.3f,\"p95Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                    histogram.getCount(), histogram.getTotalNanos() / 1e6, histogram.getMeanMillis(), histogram.getPercentileMillis(0.5),
+                    histogram.getPercentileMillis(0.95), histogram.getPercentileMillis(0.99), histogram.getMaxNanos() / 1e6));
+            separator = ",";
+        }
+
+        return json.append("}}").toString();
+    }
+
+    void writeJson(File file) {
+        try {
+            Files.write(file.toPath(), (toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Het verslag kon niet weggeschreven worden naar " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    // De piek van de hele JVM sinds de start. Die wordt niet per import teruggezet: bij meerdere imports tegelijk
+    // (import.files.parallel, de service) zou iedere nieuwe import de piek van de lopende imports wissen
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,191 @@
+package nl.idgis.importer;
+
+import java.io.File;
+
+public class ImportOptions {
+
+    private int batchSize = 500;
+    private boolean bulk;
+    private boolean delta;
+    private int commitInterval;
+    private int threads = 1;
+    private int queueSize = 4;
+    private int fileThreads = 1;
+    private File journalDirectory;
+    private int progressInterval = 10;
+    private boolean validate = true;
+    private boolean dryRun;
+    private File metricsDirectory;
+    private File outputDirectory;
+    private int adaptiveLatency;
+    private int adaptiveBatchMin = 50;
+    private int adaptiveBatchMax = 2000;
+    private int maxRate;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1 || batchSize > LocatieBatchWriter.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("De batch grootte moet tussen 1 en " + LocatieBatchWriter.MAX_BATCH_SIZE + " liggen: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public boolean isBulk() {
+        return bulk;
+    }
+
+    public void setBulk(boolean bulk) {
+        this.bulk = bulk;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public void setDelta(boolean delta) {
+        this.delta = delta;
+    }
+
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException("Het commit interval mag niet negatief zijn: " + commitInterval);
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Er is minimaal een thread nodig: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("De wachtrij moet minimaal een chunk kunnen bevatten: " + queueSize);
+        }
+        this.queueSize = queueSize;
+    }
+
+    public int getFileThreads() {
+        return fileThreads;
+    }
+
+    public void setFileThreads(int fileThreads) {
+        if (fileThreads < 1) {
+            throw new IllegalArgumentException("Er moet minimaal een GIO tegelijk geimporteerd worden: " + fileThreads);
+        }
+        this.fileThreads = fileThreads;
+    }
+
+    public File getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    public void setJournalDirectory(File journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    public int getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(int progressInterval) {
+        if (progressInterval < 0) {
+            throw new IllegalArgumentException("Het interval van de voortgang mag niet negatief zijn: " + progressInterval);
+        }
+        this.progressInterval = progressInterval;
+    }
+
+    public File getMetricsDirectory() {
+        return metricsDirectory;
+    }
+
+    public void setMetricsDirectory(File metricsDirectory) {
+        this.metricsDirectory = metricsDirectory;
+    }
+
+    public File getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public void setOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public boolean isValidate() {
+        return validate;
+    }
+
+    public void setValidate(boolean validate) {
+        this.validate = validate;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * De doellatentie in milliseconden voor het wegschrijven en committen van een chunk, 0 is een vaste chunk grootte.
+     */
+    public int getAdaptiveLatency() {
+        return adaptiveLatency;
+    }
+
+    public void setAdaptiveLatency(int adaptiveLatency) {
+        if (adaptiveLatency < 0) {
+            throw new IllegalArgumentException("De doellatentie van een chunk mag niet negatief zijn: " + adaptiveLatency);
+        }
+        this.adaptiveLatency = adaptiveLatency;
+    }
+
+    public int getAdaptiveBatchMin() {
+        return adaptiveBatchMin;
+    }
+
+    public int getAdaptiveBatchMax() {
+        return adaptiveBatchMax;
+    }
+
+    public void setAdaptiveBatchBounds(int min, int max) {
+        if (min < 1 || max > LocatieBatchWriter.MAX_BATCH_SIZE || min > max) {
+            throw new IllegalArgumentException("De grenzen van de adaptieve chunk grootte moeten tussen 1 en " + LocatieBatchWriter.MAX_BATCH_SIZE
+                    + " liggen, met het minimum niet boven het maximum: " + min + "-" + max);
+        }
+        this.adaptiveBatchMin = min;
+        this.adaptiveBatchMax = max;
+    }
+
+    /**
+     * Het maximaal aantal locaties per seconde dat weggeschreven wordt, 0 is onbegrensd.
+     */
+    public int getMaxRate() {
+        return maxRate;
+    }
+
+    public void setMaxRate(int maxRate) {
+        if (maxRate < 0) {
+            throw new IllegalArgumentException("Het maximaal aantal locaties per seconde mag niet negatief zijn: " + maxRate);
+        }
+        this.maxRate = maxRate;
+    }
+}
@@ -0,0 +1,258 @@
+package nl.idgis.importer;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Verdeelt de geparste locaties over chunks en schrijft die weg. Met een enkele thread gebeurt dat direct op de
+ * thread van de parser, binnen de transactie van de import. Met meer threads gaan de chunks via een begrensde
+ * wachtrij naar een pool van workers die ieder een chunk in een eigen transactie (en dus op een eigen connectie
+ * uit de pool) wegschrijven. De parser blokkeert zodra de wachtrij vol zit.
+ *
+ * Een basisgeo:id komt maar in een chunk terecht, ook als het vaker in het GIO voorkomt. Zo kunnen twee workers
+ * nooit tegelijk dezelfde geometrie inserten. De volgorde van de locaties in het document wordt apart bijgehouden,
+ * zodat {@link #finish()} de locatie ids in documentvolgorde teruggeeft.
+ *
+ * De chunk grootte en het aantal chunks dat tegelijk weggeschreven wordt volgen {@link AdaptiveWriteControl}, het
+ * aantal locaties per seconde kan begrensd worden met een {@link RateLimiter}.
+ */
+class ImportPipeline implements Consumer<GioLocatie>, AutoCloseable {
+
+    interface ChunkWriter {
+        int[] write(List<GioLocatie> chunk);
+    }
+
+    private final ChunkWriter writer;
+    private final AdaptiveWriteControl control;
+    private final RateLimiter rateLimiter;
+    private final IntConsumer checkpoint;
+    private final ImportMetrics metrics;
+    private final ProgressReporter progress;
+    private final Geometrietype.Check geometrietype;
+    private long consumerNanos;
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore slots;
+    private final TransactionTemplate chunkTransaction;
+    private final List<Future<?>> futures = new ArrayList<>();
+    private volatile RuntimeException failure;
+
+    private final List<Integer> hervat = new ArrayList<>();
+    private final List<String> volgorde = new ArrayList<>();
+    private final Set<String> aangeboden = new HashSet<>();
+    private final Map<String, Integer> locatieIds = new ConcurrentHashMap<>();
+
+    private List<GioLocatie> chunk;
+
+    /**
+     * @param transactionManager voor de transacties van de workers, null als er zonder transactie geschreven wordt
+     * @param checkpoint wordt bij een enkele thread na iedere chunk aangeroepen met het aantal verwerkte locaties
+     */
+    ImportPipeline(ChunkWriter writer, ImportOptions options, PlatformTransactionManager transactionManager, IntConsumer checkpoint,
+                   ImportMetrics metrics) {
+        this.writer = writer;
+        this.geometrietype = new Geometrietype.Check(options.isValidate());
+        this.control = new AdaptiveWriteControl(options, metrics);
+        this.rateLimiter = options.getMaxRate() > 0 ? new RateLimiter(options.getMaxRate()) : null;
+        this.checkpoint = checkpoint;
+        this.metrics = metrics;
+        this.progress = new ProgressReporter(metrics, options.getProgressInterval());
+        this.chunk = new ArrayList<>(control.getBatchSize());
+
+        if (options.getThreads() > 1) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            // De semafoor begrenst de wachtrij. Een worker geeft zijn plek vrij voordat hij de volgende chunk oppakt,
+            // de executor moet die chunk dan nog kwijt kunnen
+            this.executor = new ThreadPoolExecutor(options.getThreads(), options.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(options.getThreads() + options.getQueueSize()),
+                    runnable -> new Thread(runnable, "gio-import-" + threadNumber.incrementAndGet()));
+            this.slots = new Semaphore(options.getThreads() + options.getQueueSize());
+            this.chunkTransaction = transactionManager != null ? new TransactionTemplate(transactionManager) : null;
+        } else {
+            this.executor = null;
+            this.slots = null;
+            this.chunkTransaction = null;
+        }
+    }
+
+    /**
+     * Gaat verder na de locatie ids van een eerdere, onderbroken import. De parser moet dan dat aantal locaties
+     * overslaan.
+     */
+    void resume(List<Integer> locatieIds) {
+        if (!volgorde.isEmpty()) {
+            throw new IllegalStateException("Een import kan alleen voor de eerste locatie hervat worden");
+        }
+        hervat.addAll(locatieIds);
+    }
+
+    /**
+     * De locatie ids in documentvolgorde vanaf de gegeven positie (0 is de eerste locatie van het GIO). Bij een enkele
+     * thread zijn na iedere checkpoint alle tot dan toe aangeboden locaties weggeschreven.
+     */
+    List<Integer> getLocatieIds(int vanaf) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = vanaf; i < hervat.size() + volgorde.size(); i++) {
+            result.add(i < hervat.size() ? hervat.get(i) : getLocatieId(volgorde.get(i - hervat.size())));
+        }
+        return result;
+    }
+
+    @Override
+    public void accept(GioLocatie locatie) {
+        long start = System.nanoTime();
+        geometrietype.check(locatie);
+        volgorde.add(locatie.getId());
+        if (aangeboden.add(locatie.getId())) {
+            chunk.add(locatie);
+            if (chunk.size() >= control.getBatchSize()) {
+                dispatch();
+            }
+        }
+        metrics.increment(ImportMetrics.LOCATIES, 1);
+        progress.update();
+        consumerNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Het geometrietype van de eerste aangeboden locatie, of null als er (na het hervatten) geen locaties zijn aangeboden.
+     */
+    String getGeometrietype() {
+        return geometrietype.getGeometrietype();
+    }
+
+    /**
+     * De tijd die de parser in {@link #accept} heeft doorgebracht, met een enkele thread is dat inclusief het
+     * wegschrijven, met meer threads het wachten op een vrije plek in de wachtrij.
+     */
+    long getConsumerNanos() {
+        return consumerNanos;
+    }
+
+    /**
+     * Schrijft de laatste chunk weg, wacht op alle workers en geeft de locatie ids in documentvolgorde terug.
+     */
+    List<Integer> finish() {
+        if (!chunk.isEmpty()) {
+            dispatch();
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("De import is onderbroken", e);
+            } catch (ExecutionException e) {
+                throw failure != null ? failure : new IllegalStateException("Er ging iets mis bij het wegschrijven van de locaties", e.getCause());
+            }
+        }
+
+        if (control.isAdaptief()) {
+            System.out.println(control.getSamenvatting());
+        }
+
+        return getLocatieIds(0);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private int getLocatieId(String id) {
+        Integer locatieId = locatieIds.get(id);
+        if (locatieId == null) {
+            throw new IllegalStateException("Er ging iets mis bij het inserten van de geometrie " + id);
+        }
+        return locatieId;
+    }
+
+    private void dispatch() {
+        List<GioLocatie> locaties = chunk;
+        chunk = new ArrayList<>(control.getBatchSize());
+
+        if (executor == null) {
+            // De commit van een checkpoint hoort bij de latentie van de chunk
+            throttle(locaties.size());
+            control.begin();
+            long begin = System.nanoTime();
+            try {
+                write(locaties);
+                checkpoint.accept(locaties.size());
+            } finally {
+                control.end(begin, System.nanoTime());
+            }
+            return;
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("De import is onderbroken", e);
+        }
+
+        futures.add(executor.submit(() -> {
+            try {
+                throttle(locaties.size());
+                control.begin();
+                long begin = System.nanoTime();
+                try {
+                    if (chunkTransaction != null) {
+                        chunkTransaction.executeWithoutResult(status -> write(locaties));
+                    } else {
+                        write(locaties);
+                    }
+                } finally {
+                    control.end(begin, System.nanoTime());
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+                throw e;
+            } finally {
+                slots.release();
+            }
+        }));
+    }
+
+    private void throttle(int locaties) {
+        if (rateLimiter != null) {
+            long wacht = rateLimiter.acquire(locaties);
+            if (wacht > 0) {
+                metrics.record(ImportMetrics.RATE_WACHT, wacht);
+            }
+        }
+    }
+
+    private void write(List<GioLocatie> locaties) {
+        // Geometrie + Locatie
+        long begin = System.nanoTime();
+        int[] ids = writer.write(locaties);
+        metrics.record(ImportMetrics.CHUNK, System.nanoTime() - begin);
+        for (int i = 0; i < ids.length; i++) {
+            locatieIds.put(locaties.get(i).getId(), ids[i]);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package nl.idgis.importer;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * De transactie van een import. Zonder commit interval is de hele import een transactie, anders wordt er na
+ * iedere N verwerkte locaties een checkpoint gecommit en een nieuwe transactie gestart.
+ */
+class ImportTransaction {
+
+    private final PlatformTransactionManager transactionManager;
+    private final int commitInterval;
+
+    private TransactionStatus status;
+    private int uncommitted;
+    private Runnable checkpointListener = () -> { };
+
+    ImportTransaction(PlatformTransactionManager transactionManager, int commitInterval) {
+        this.transactionManager = transactionManager;
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Wordt aangeroepen na iedere gecommitte checkpoint, niet na de laatste commit van de import.
+     */
+    void setCheckpointListener(Runnable checkpointListener) {
+        this.checkpointListener = checkpointListener;
+    }
+
+    void begin() {
+        status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        uncommitted = 0;
+    }
+
+    void checkpoint(int locaties) {
+        uncommitted += locaties;
+        if (commitInterval > 0 && uncommitted >= commitInterval) {
+            commit();
+            checkpointListener.run();
+            begin();
+        }
+    }
+
+    void commit() {
+        transactionManager.commit(status);
+        status = null;
+    }
+
+    void rollback() {
+        if (status != null && !status.isCompleted()) {
+            transactionManager.rollback(status);
+        }
+        status = null;
+    }
+}
@@ -0,0 +1,137 @@
+package nl.idgis.importer;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Telt de metingen van alle imports van het proces op en biedt ze aan als MBean {@value #OBJECT_NAME}, zodat een
+ * monitoringsysteem ze via JMX kan uitlezen. Per meting zijn er de attributen {@code <meting>.aantal} en
+ * {@code <meting>.totaalMs}, per teller een attribuut met de naam van de teller.
+ *
+ * Te kiezen met import.metrics.registry=jmx.
+ */
+public class JmxMetricsRegistry implements MetricsRegistry, AutoCloseable {
+
+    public static final String OBJECT_NAME = "nl.idgis.importer:type=ImportMetrics";
+
+    private static final String AANTAL = ".aantal";
+    private static final String TOTAAL_MS = ".totaalMs";
+
+    private final Map<String, LongAdder> aantallen = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> totaalNanos = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> tellers = new ConcurrentHashMap<>();
+
+    /**
+     * Registreert de MBean bij de platform MBean server, een eerder geregistreerde registry wordt vervangen.
+     */
+    public void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+        } catch (JMException e) {
+            throw new IllegalStateException("De metingen kunnen niet als MBean " + OBJECT_NAME + " geregistreerd worden", e);
+        }
+    }
+
+    /**
+     * Verwijdert de MBean weer, bij het sluiten van de Spring context.
+     */
+    @Override
+    public void close() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            System.err.println("De MBean " + OBJECT_NAME + " kon niet verwijderd worden: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void record(String name, long nanos) {
+        aantallen.computeIfAbsent(name, key -> new LongAdder()).increment();
+        totaalNanos.computeIfAbsent(name, key -> new LongAdder()).add(nanos);
+    }
+
+    @Override
+    public void increment(String name, long amount) {
+        tellers.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    private Map<String, Long> getWaarden() {
+        Map<String, Long> waarden = new ConcurrentSkipListMap<>();
+        aantallen.forEach((name, aantal) -> waarden.put(name + AANTAL, aantal.sum()));
+        totaalNanos.forEach((name, nanos) -> waarden.put(name + TOTAAL_MS, nanos.sum() / 1_000_000));
+        tellers.forEach((name, teller) -> waarden.put(name, teller.sum()));
+        return waarden;
+    }
+
+    // De metingen zijn pas bekend als ze voor het eerst voorkomen, de attributen worden daarom bij iedere vraag bepaald
+    private class Bean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Long waarde = getWaarden().get(attribute);
+            if (waarde == null) {
+                throw new AttributeNotFoundException("Onbekende meting: " + attribute);
+            }
+            return waarde;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Long> waarden = getWaarden();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                if (waarden.containsKey(attribute)) {
+                    list.add(new Attribute(attribute, waarden.get(attribute)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("De metingen zijn alleen te lezen: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "Geen operaties: " + actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributen = new ArrayList<>();
+            for (String name : getWaarden().keySet()) {
+                attributen.add(new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false));
+            }
+            return new MBeanInfo(JmxMetricsRegistry.class.getName(), "Metingen van de GIO imports",
+                    attributen.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+        }
+    }
+}
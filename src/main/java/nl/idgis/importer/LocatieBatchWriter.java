@@ -0,0 +1,317 @@
+package nl.idgis.importer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Schrijft locaties per chunk weg: een lookup van de bestaande geometrieen en een enkel statement dat de nieuwe
+ * geometrieen en locaties in een keer insert, in plaats van een handvol round trips per locatie.
+ */
+class LocatieBatchWriter {
+
+    // PostgreSQL staat maximaal 65535 parameters per statement toe, per locatie gebruiken we er 5
+    static final int MAX_BATCH_SIZE = 10_000;
+
+    // Er is geen unieke index op bzk.geometrie.geometrie_id, een delta import voegt een gewijzigde geometrie opnieuw in.
+    // Zonder locks kunnen twee transacties dezelfde geometrie_id niet vinden en allebei invoegen. De import lock en de
+    // lock per geometrie_id hebben ieder hun eigen klasse, zie de functies met twee int keys van PostgreSQL.
+    static final String IMPORT_LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('bzk.geometrie'), 0)";
+    static final String IMPORT_LOCK_SHARED_SQL = "SELECT pg_advisory_xact_lock_shared(hashtext('bzk.geometrie'), 0)";
+    // Op volgorde, zodat twee chunks niet op elkaar kunnen wachten. Een botsing van hashtext laat alleen een chunk
+    // onnodig wachten.
+    static final String GEOMETRIE_ID_LOCK_SQL =
+            "SELECT count(pg_advisory_xact_lock(hashtext('bzk.geometrie.geometrie_id'), h)) " +
+            "FROM (SELECT DISTINCT hashtext(id) h FROM unnest(?) AS v(id) ORDER BY h) l";
+
+    static final String IDENTIFICATIE_SQL =
+            "'nl.imow-' || ? || '.' || CASE geometrietype WHEN 'vlak' THEN 'gebied' ELSE geometrietype END || '.' || uuid";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImportMetrics metrics;
+    private final boolean transactiePerChunk;
+
+    /**
+     * @param transactiePerChunk of iedere chunk een eigen transactie heeft, zoals bij meerdere threads
+     */
+    LocatieBatchWriter(JdbcTemplate jdbcTemplate, ImportMetrics metrics, boolean transactiePerChunk) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+        this.transactiePerChunk = transactiePerChunk;
+    }
+
+    /**
+     * Geeft de locatie ids terug in dezelfde volgorde als de locaties in de chunk. Alleen de geometrie_ids die nog
+     * niet in de cache staan worden in de database opgezocht, nieuwe geometrieen worden aan de cache toegevoegd.
+     */
+    int[] write(List<GioLocatie> chunk, GeometrieCache cache, LocalDate dateStart, int regelingId, String bgCode) {
+        Map<String, GioLocatie> onbekend = new LinkedHashMap<>();
+        chunk.stream()
+            .filter(locatie -> !cache.contains(locatie.getId()))
+            .forEach(locatie -> onbekend.putIfAbsent(locatie.getId(), locatie));
+
+        if (!onbekend.isEmpty()) {
+            writeOnbekend(onbekend, cache, dateStart, regelingId, bgCode);
+        }
+
+        return getLocatieIds(chunk, cache);
+    }
+
+    /**
+     * Als {@link #write}, maar vergelijkt de locaties eerst met de vorige versie van het GIO. Ongewijzigde locaties
+     * worden hergebruikt, gewijzigde geometrieen worden opnieuw ingevoegd, ook als de geometrie_id al bestaat.
+     */
+    int[] writeDelta(List<GioLocatie> chunk, GioDelta delta, GeometrieCache cache, LocalDate dateStart, int regelingId, String bgCode) {
+        Map<String, byte[]> hashes = new LinkedHashMap<>();
+        List<GioLocatie> gewijzigd = new ArrayList<>();
+        List<GioLocatie> zonderHash = new ArrayList<>();
+        Map<String, GioLocatie> nieuw = new LinkedHashMap<>();
+        for (GioLocatie locatie : chunk) {
+            if (hashes.containsKey(locatie.getId()) || cache.contains(locatie.getId())) {
+                continue;
+            }
+
+            byte[] hash = GioDelta.hash(locatie.getGml());
+            hashes.put(locatie.getId(), hash);
+            switch (delta.vergelijk(locatie.getId(), hash, cache)) {
+                case GEWIJZIGD:
+                    gewijzigd.add(locatie);
+                    break;
+                case NIEUW:
+                    nieuw.put(locatie.getId(), locatie);
+                    break;
+                case ONBEKEND:
+                    zonderHash.add(locatie);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Alleen een geometrie die hier ingevoegd of gelijk bevonden is krijgt een hash, een bestaande rij kan
+        // anders een hash krijgen van GML die er niet in staat
+        List<String> teOpslaan = new ArrayList<>();
+        if (!zonderHash.isEmpty()) {
+            Set<String> gelijk = vergelijkGeometrieen(zonderHash, delta);
+            for (GioLocatie locatie : zonderHash) {
+                delta.bevestig(locatie.getId(), gelijk.contains(locatie.getId()), cache);
+                if (gelijk.contains(locatie.getId())) {
+                    teOpslaan.add(locatie.getId());
+                } else {
+                    gewijzigd.add(locatie);
+                }
+            }
+        }
+        if (!gewijzigd.isEmpty()) {
+            insertGeometrieenEnLocaties(gewijzigd, cache, dateStart, regelingId, bgCode);
+            gewijzigd.forEach(locatie -> teOpslaan.add(locatie.getId()));
+        }
+        if (!nieuw.isEmpty()) {
+            writeOnbekend(nieuw, cache, dateStart, regelingId, bgCode).forEach(locatie -> teOpslaan.add(locatie.getId()));
+        }
+
+        if (!teOpslaan.isEmpty()) {
+            List<Object[]> nieuweHashes = new ArrayList<>();
+            teOpslaan.forEach(id -> nieuweHashes.add(new Object[] {cache.getGeometrieId(id), hashes.get(id)}));
+            long start = System.nanoTime();
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO " + GioDelta.HASH_TABLE + " (geometrie_id, hash) VALUES (?, ?) " +
+                    "ON CONFLICT (geometrie_id) DO UPDATE SET hash = excluded.hash",
+                    nieuweHashes);
+            metrics.record(ImportMetrics.DB_HASH_UPSERT, System.nanoTime() - start);
+        }
+
+        return getLocatieIds(chunk, cache);
+    }
+
+    void linkLocatiesToGroep(List<Integer> locatieIds, int locatieGroepId, int batchSize) {
+        String sql = "INSERT INTO bzk.groep_locatie (locatiegroep_id, locatie_id) VALUES (?, ?)";
+
+        for (int van = 0; van < locatieIds.size(); van += batchSize) {
+            List<Integer> batch = locatieIds.subList(van, Math.min(van + batchSize, locatieIds.size()));
+            long start = System.nanoTime();
+            jdbcTemplate.batchUpdate(sql, batch, batchSize, (ps, locatieId) -> {
+                ps.setInt(1, locatieGroepId);
+                ps.setInt(2, locatieId);
+            });
+            metrics.record(ImportMetrics.DB_GROEP_LINK, System.nanoTime() - start);
+        }
+    }
+
+    private static int[] getLocatieIds(List<GioLocatie> chunk, GeometrieCache cache) {
+        int[] result = new int[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            String id = chunk.get(i).getId();
+            int locatieId = cache.getLocatieId(id);
+            if (locatieId == 0) {
+                throw new IllegalStateException("Er ging iets mis bij het inserten van de geometrie " + id);
+            }
+            result[i] = locatieId;
+        }
+
+        return result;
+    }
+
+    /**
+     * Zoekt de locaties op die nog niet in de cache staan en voegt de geometrieen die niet in de database staan in.
+     * Geeft de ingevoegde locaties terug.
+     */
+    private List<GioLocatie> writeOnbekend(Map<String, GioLocatie> onbekend, GeometrieCache cache, LocalDate dateStart, int regelingId, String bgCode) {
+        lockGeometrieIds(onbekend.keySet());
+        loadBestaandeLocatieIds(onbekend.keySet(), cache);
+
+        List<GioLocatie> nieuw = new ArrayList<>();
+        onbekend.values().stream()
+            .filter(locatie -> !cache.contains(locatie.getId()))
+            .forEach(nieuw::add);
+        if (!nieuw.isEmpty()) {
+            insertGeometrieenEnLocaties(nieuw, cache, dateStart, regelingId, bgCode);
+        }
+        return nieuw;
+    }
+
+    // Een transactie per chunk houdt alleen de locks van die chunk vast en lockt de geometrie_ids, de import lock
+    // gedeeld. Een transactie over meerdere chunks zou een lock per nieuwe geometrie tot de commit vasthouden, meer
+    // dan max_locks_per_transaction toestaat, en kan op de locks van een andere import wachten terwijl die op de
+    // zijne wacht. Die neemt daarom de import lock exclusief en schrijft niet tegelijk met andere imports.
+    // Met de lock wacht een tweede transactie tot de eerste gecommit heeft en vindt de lookup daarna de rij.
+    private void lockGeometrieIds(Collection<String> gmlIds) {
+        long start = System.nanoTime();
+        if (transactiePerChunk) {
+            jdbcTemplate.query(IMPORT_LOCK_SHARED_SQL, rs -> { });
+            jdbcTemplate.query(
+                    conn -> {
+                        PreparedStatement ps = conn.prepareStatement(GEOMETRIE_ID_LOCK_SQL);
+                        ps.setArray(1, conn.createArrayOf("text", gmlIds.toArray()));
+
+                        return ps;
+                    },
+                    rs -> { }
+            );
+        } else {
+            jdbcTemplate.query(IMPORT_LOCK_SQL, rs -> { });
+        }
+        metrics.record(ImportMetrics.DB_GEOMETRIE_LOCK, System.nanoTime() - start);
+    }
+
+    // Vergelijkt de GML met de geometrie van de vorige versie en geeft de geometrie_ids terug die gelijk zijn
+    private Set<String> vergelijkGeometrieen(List<GioLocatie> locaties, GioDelta delta) {
+        String sql =
+                "SELECT v.geometrie_id FROM unnest(?, ?, ?) AS v(geometrie_id, id, gml) " +
+                "JOIN bzk.geometrie g ON g.id = v.id " +
+                "WHERE ST_OrderingEquals(g.geometrie, ST_GEOMFROMGML(v.gml, 28992))";
+        Set<String> gelijk = new HashSet<>();
+        long start = System.nanoTime();
+        jdbcTemplate.query(
+                conn -> {
+                    PreparedStatement ps = conn.prepareStatement(sql);
+                    ps.setArray(1, conn.createArrayOf("text", locaties.stream().map(GioLocatie::getId).toArray()));
+                    ps.setArray(2, conn.createArrayOf("integer", locaties.stream().map(locatie -> delta.getVorigeGeometrieId(locatie.getId())).toArray()));
+                    ps.setArray(3, conn.createArrayOf("text", locaties.stream().map(GioLocatie::getGml).toArray()));
+
+                    return ps;
+                },
+                rs -> {
+                    gelijk.add(rs.getString(1));
+                }
+        );
+        metrics.record(ImportMetrics.DB_GEOMETRIE_VERGELIJK, System.nanoTime() - start);
+        return gelijk;
+    }
+
+    // Een delta import voegt een gewijzigde geometrie opnieuw in met dezelfde geometrie_id, de nieuwste rij is de
+    // actuele geometrie
+    private void loadBestaandeLocatieIds(Collection<String> gmlIds, GeometrieCache cache) {
+        String sql =
+                "SELECT g.geometrie_id, g.id, l.id locatie_id FROM bzk.geometrie g " +
+                "LEFT JOIN bzk.locatie l ON l.geometrie_id = g.id " +
+                "WHERE g.geometrie_id = ANY(?) " +
+                "ORDER BY g.id DESC, l.id";
+        Set<String> zonderLocatie = new HashSet<>();
+        long start = System.nanoTime();
+        jdbcTemplate.query(
+                conn -> {
+                    PreparedStatement ps = conn.prepareStatement(sql);
+                    Array array = conn.createArrayOf("text", gmlIds.toArray());
+                    ps.setArray(1, array);
+
+                    return ps;
+                },
+                rs -> {
+                    String gmlId = rs.getString("geometrie_id");
+                    int locatieId = rs.getInt("locatie_id");
+                    if (rs.wasNull()) {
+                        zonderLocatie.add(gmlId);
+                    } else {
+                        cache.putIfAbsent(gmlId, rs.getInt("id"), locatieId);
+                    }
+                }
+        );
+        metrics.record(ImportMetrics.DB_GEOMETRIE_LOOKUP, System.nanoTime() - start);
+
+        zonderLocatie.stream()
+            .filter(gmlId -> !cache.contains(gmlId))
+            .findFirst()
+            .ifPresent(gmlId -> {
+                throw new IllegalArgumentException("Kon de id van de locatie bij geometrie '" + gmlId + "' niet ophalen");
+            });
+    }
+
+    private void insertGeometrieenEnLocaties(List<GioLocatie> locaties, GeometrieCache cache, LocalDate dateStart, int regelingId, String bgCode) {
+        // Het geometrietype is al bij het parsen bepaald, zie Geometrietype
+        StringBuilder sql = new StringBuilder("WITH invoer (naam, geometrie_id, gml, uuid, geometrietype) AS (VALUES ");
+        for (int i = 0; i < locaties.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+        }
+        sql.append("), geometrie AS (")
+            .append("INSERT INTO bzk.geometrie (naam, geometrie_id, geometrie) ")
+            .append("SELECT naam, geometrie_id, ST_GEOMFROMGML(gml, 28992) FROM invoer ")
+            .append("RETURNING id, geometrie_id")
+            .append("), getypeerd AS (")
+            .append("SELECT g.id, g.geometrie_id, i.naam, i.uuid, i.geometrietype ")
+            .append("FROM geometrie g JOIN invoer i ON i.geometrie_id = g.geometrie_id")
+            .append("), locatie AS (")
+            .append("INSERT INTO bzk.locatie (naam, datum_begin, ind_groep_jn, regeling_id, geometrietype, geometrie_id, identificatie) ")
+            .append("SELECT naam, ?, false, ?, geometrietype, id, ").append(IDENTIFICATIE_SQL).append(" ")
+            .append("FROM getypeerd ")
+            .append("RETURNING id, geometrie_id")
+            .append(") ")
+            .append("SELECT l.id, t.geometrie_id, t.id geometrie_pk FROM locatie l JOIN getypeerd t ON t.id = l.geometrie_id");
+
+        long start = System.nanoTime();
+        jdbcTemplate.query(
+                conn -> {
+                    PreparedStatement ps = conn.prepareStatement(sql.toString());
+                    int index = 1;
+                    for (GioLocatie locatie : locaties) {
+                        ps.setString(index++, locatie.getNaam());
+                        ps.setString(index++, locatie.getId());
+                        ps.setString(index++, locatie.getGml());
+                        ps.setString(index++, UUID.randomUUID().toString().replace("-", "").toLowerCase());
+                        ps.setString(index++, locatie.getGeometrietype());
+                    }
+                    ps.setDate(index++, Date.valueOf(dateStart));
+                    ps.setInt(index++, regelingId);
+                    ps.setString(index, bgCode);
+
+                    return ps;
+                },
+                rs -> {
+                    cache.putIfAbsent(rs.getString("geometrie_id"), rs.getInt("geometrie_pk"), rs.getInt("id"));
+                }
+        );
+        metrics.record(ImportMetrics.DB_GEOMETRIE_INSERT, System.nanoTime() - start);
+        metrics.increment(ImportMetrics.GEOMETRIEEN_NIEUW, locaties.size());
+    }
+}
@@ -0,0 +1,293 @@
+package nl.idgis.importer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Leest een GIO met meerdere threads. Het bestand wordt met NIO gemapt en op byteniveau in stukken van een paar MB
+ * gesplitst, steeds net voor een geo:Locatie. Ieder stuk wordt, met de namespace declaraties die daar in scope
+ * zijn, in een eigen element verpakt en door een {@link StaxGioParser} geparst. De locaties worden in
+ * documentvolgorde aan de consumer doorgegeven, op de thread die {@link #parse} aanroept.
+ *
+ * Het bestand moet UTF-8 zijn en een namespace prefix mag binnen de locaties niet opnieuw gedeclareerd worden
+ * met een andere namespace. Een GIO in een andere encoding wordt met een enkele thread gelezen.
+ */
+public class MappedGioParser implements GioParser {
+
+    private static final int MIN_CHUNK = 1024 * 1024;
+    private static final int MAX_CHUNK = 8 * 1024 * 1024;
+    private static final int SCAN_WINDOW = 1024 * 1024;
+
+    private final int threads;
+    private final StaxGioParser fallback = new StaxGioParser();
+    private final ThreadLocal<StaxGioParser> chunkParser = ThreadLocal.withInitial(StaxGioParser::new);
+    private final XMLInputFactory inputFactory;
+
+    /**
+     * @param threads aantal threads voor het parsen, 0 is het aantal processors
+     */
+    public MappedGioParser(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Het aantal threads van de parser mag niet negatief zijn: " + threads);
+        }
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    @Override
+    public GioMetadata parse(File file, int overslaan, Consumer<GioLocatie> consumer) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Head head = readHead(channel);
+            if (head == null) {
+                return fallback.parse(file, overslaan, consumer);
+            }
+
+            byte[] start = ("<" + head.prefix + "Locatie").getBytes(StandardCharsets.UTF_8);
+            byte[] end = ("</" + head.prefix + "Locatie>").getBytes(StandardCharsets.UTF_8);
+            long eerste = indexOf(channel, start, 0);
+            long laatste = lastIndexOf(channel, end);
+            if (eerste < 0 || laatste < eerste) {
+                return fallback.parse(file, overslaan, consumer);
+            }
+            laatste += end.length;
+
+            // Wat voor de eerste en na de laatste locatie staat is samen een GIO zonder locaties, met alle metadata
+            InputStream skelet = new SequenceInputStream(
+                    new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, eerste)),
+                    new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, laatste, channel.size() - laatste)));
+            GioMetadata metadata = fallback.parse(skelet, 0, locatie -> { });
+
+            parseLocaties(file, channel, head, start, eerste, laatste, overslaan, consumer);
+            return metadata;
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("Het GIO bestand kon niet gelezen worden: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private void parseLocaties(File file, FileChannel channel, Head head, byte[] start, long eerste, long laatste, int overslaan,
+                               Consumer<GioLocatie> consumer) throws IOException {
+        long chunkSize = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, (laatste - eerste) / (threads * 4L)));
+        byte[] open = head.wrapper.getBytes(StandardCharsets.UTF_8);
+        byte[] close = "</gio-chunk>".getBytes(StandardCharsets.UTF_8);
+
+        // De GML serialisatie wordt gemeten in de metingen van de import, ook op de threads van de parser
+        ImportMetrics metrics = ImportMetrics.current();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, "gio-parser-" + threadNumber.incrementAndGet()));
+        try {
+            // Hooguit twee stukken per thread tegelijk in het geheugen
+            Deque<Future<List<GioLocatie>>> futures = new ArrayDeque<>();
+            int locaties = 0;
+            long positie = eerste;
+            while (positie < laatste || !futures.isEmpty()) {
+                while (positie < laatste && futures.size() < threads * 2) {
+                    long volgende = positie + chunkSize < laatste ? indexOf(channel, start, positie + chunkSize) : -1;
+                    if (volgende < 0 || volgende > laatste) {
+                        volgende = laatste;
+                    }
+                    if (volgende - positie > Integer.MAX_VALUE - open.length - close.length) {
+                        throw new IllegalStateException("Locatie op positie " + positie + " is te groot om te mappen");
+                    }
+
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, positie, volgende - positie);
+                    futures.add(executor.submit(() -> {
+                        ImportMetrics.Scope scope = metrics.bind();
+                        try {
+                            List<GioLocatie> chunk = new ArrayList<>();
+                            InputStream in = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                                    new ByteArrayInputStream(open), new ByteBufferInputStream(buffer), new ByteArrayInputStream(close))));
+                            chunkParser.get().parse(in, 0, chunk::add);
+                            return chunk;
+                        } finally {
+                            scope.close();
+                        }
+                    }));
+                    positie = volgende;
+                }
+
+                for (GioLocatie locatie : get(file, futures.poll())) {
+                    if (locaties++ >= overslaan) {
+                        consumer.accept(locatie);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<GioLocatie> get(File file, Future<List<GioLocatie>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Het parsen is onderbroken", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Het GIO bestand kon niet gelezen worden: " + file.getAbsolutePath(), e.getCause());
+        }
+    }
+
+    // Leest tot de eerste geo:Locatie, voor de prefix en de namespace declaraties die daar in scope zijn
+    private Head readHead(FileChannel channel) throws IOException, XMLStreamException {
+        InputStream in = new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE)));
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+        try {
+            String encoding = reader.getCharacterEncodingScheme();
+            if (encoding != null && !"UTF-8".equalsIgnoreCase(encoding) && !"US-ASCII".equalsIgnoreCase(encoding)) {
+                System.out.printf("Het GIO is in %s in plaats van UTF-8 en wordt met een enkele thread gelezen%n", encoding);
+                return null;
+            }
+
+            Map<String, String> namespaces = new LinkedHashMap<>();
+            while (reader.hasNext()) {
+                if (reader.next() != START_ELEMENT) {
+                    continue;
+                }
+
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    String prefix = reader.getNamespacePrefix(i) == null ? "" : reader.getNamespacePrefix(i);
+                    String vorige = namespaces.put(prefix, reader.getNamespaceURI(i));
+                    if (vorige != null && !vorige.equals(reader.getNamespaceURI(i))) {
+                        System.out.printf("Namespace prefix '%s' wordt opnieuw gedeclareerd, het GIO wordt met een enkele thread gelezen%n", prefix);
+                        return null;
+                    }
+                }
+
+                if (GEO_NS.equals(reader.getNamespaceURI()) && "Locatie".equals(reader.getLocalName())) {
+                    String prefix = reader.getPrefix();
+                    StringBuilder wrapper = new StringBuilder("<gio-chunk");
+                    namespaces.forEach((ns, uri) -> wrapper.append(ns.isEmpty() ? " xmlns" : " xmlns:" + ns)
+                            .append("=\"").append(escape(uri)).append('"'));
+                    return new Head(prefix == null || prefix.isEmpty() ? "" : prefix + ":", wrapper.append('>').toString());
+                }
+            }
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+    }
+
+    // De positie van het eerste begin van een element vanaf de gegeven positie, of -1
+    private static long indexOf(FileChannel channel, byte[] pattern, long vanaf) throws IOException {
+        long size = channel.size();
+        for (long window = vanaf; window < size; window += SCAN_WINDOW) {
+            int length = (int) Math.min(SCAN_WINDOW + pattern.length, size - window);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, window, length);
+            for (int i = 0; i < Math.min(SCAN_WINDOW, length); i++) {
+                if (buffer.get(i) == '<' && matches(buffer, i, pattern, length)) {
+                    return window + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // De positie van het laatste voorkomen van het patroon, of -1
+    private static long lastIndexOf(FileChannel channel, byte[] pattern) throws IOException {
+        long size = channel.size();
+        for (long einde = size; einde > 0; einde -= SCAN_WINDOW) {
+            long window = Math.max(0, einde - SCAN_WINDOW);
+            int length = (int) Math.min(einde - window + pattern.length, size - window);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, window, length);
+            for (int i = (int) (einde - window) - 1; i >= 0; i--) {
+                if (buffer.get(i) == '<' && matches(buffer, i, pattern, length)) {
+                    return window + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Het patroon moet gevolgd worden door het einde van de naam, anders is <geo:Locaties ook een treffer
+    private static boolean matches(ByteBuffer buffer, int i, byte[] pattern, int length) {
+        if (i + pattern.length > length) {
+            return false;
+        }
+        for (int j = 1; j < pattern.length; j++) {
+            if (buffer.get(i + j) != pattern[j]) {
+                return false;
+            }
+        }
+        if (pattern[pattern.length - 1] == '>' || i + pattern.length == length) {
+            return true;
+        }
+        byte next = buffer.get(i + pattern.length);
+        return next == '>' || next == '/' || next == ' ' || next == '\t' || next == '\r' || next == '\n';
+    }
+
+    private static class Head {
+        private final String prefix;
+        private final String wrapper;
+
+        private Head(String prefix, String wrapper) {
+            this.prefix = prefix;
+            this.wrapper = wrapper;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package nl.idgis.importer;
+
+/**
+ * Ontvangt de metingen van een import. Met import.metrics.registry worden de metingen doorgestuurd naar
+ * bijvoorbeeld een monitoringsysteem: jmx voor {@link JmxMetricsRegistry}, of de klassenaam van een eigen
+ * implementatie met een publieke constructor zonder argumenten. Standaard worden de metingen alleen in het verslag
+ * na afloop van iedere import opgenomen.
+ */
+public interface MetricsRegistry {
+
+    MetricsRegistry NOOP = new MetricsRegistry() {
+        @Override
+        public void record(String name, long nanos) {
+        }
+
+        @Override
+        public void increment(String name, long amount) {
+        }
+    };
+
+    /**
+     * Legt de duur van een enkele meting vast, bijvoorbeeld van een statement.
+     */
+    void record(String name, long nanos);
+
+    void increment(String name, long amount);
+}
@@ -0,0 +1,117 @@
+package nl.idgis.importer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Schrijft een GIO naar de bzk tabellen in PostgreSQL, binnen de transactie(s) van de import. De locaties gaan per
+ * chunk via {@link LocatieBatchWriter}, met een vergelijking met de vorige versie als er een {@link GioDelta} is.
+ */
+class PostgresGioSink implements GioSink {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GioImporter.Regeling regeling;
+    private final GioDelta delta;
+    private final LocalDate dateStart;
+    private final int batchSize;
+    private final ImportMetrics metrics;
+
+    private final LocatieBatchWriter batchWriter;
+    private final GeometrieCache cache = new GeometrieCache();
+
+    /**
+     * @param delta de vorige versie van het GIO, of null om alle geometrieen op geometrie_id te hergebruiken
+     * @param transactiePerChunk of iedere chunk een eigen transactie heeft, zoals bij meerdere threads
+     */
+    PostgresGioSink(JdbcTemplate jdbcTemplate, GioImporter.Regeling regeling, GioDelta delta, LocalDate dateStart, int batchSize,
+                    boolean transactiePerChunk, ImportMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.regeling = regeling;
+        this.delta = delta;
+        this.dateStart = dateStart;
+        this.batchSize = batchSize;
+        this.metrics = metrics;
+        this.batchWriter = new LocatieBatchWriter(jdbcTemplate, metrics, transactiePerChunk);
+    }
+
+    LocalDate getDateStart() {
+        return dateStart;
+    }
+
+    @Override
+    public int[] writeLocaties(List<GioLocatie> chunk) {
+        return delta != null
+                ? batchWriter.writeDelta(chunk, delta, cache, dateStart, regeling.id, regeling.eindverantwoordelijke)
+                : batchWriter.write(chunk, cache, dateStart, regeling.id, regeling.eindverantwoordelijke);
+    }
+
+    @Override
+    public int insertGroep(String naam, String geometrietype) {
+        String sql =
+                "INSERT INTO bzk.locatie (naam, datum_begin, ind_groep_jn, regeling_id, geometrietype, identificatie) " +
+                "VALUES (?, ?, true, ?, ?, ?) " +
+                "RETURNING id";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        String objectType = "vlak".equals(geometrietype) ? "gebied" : geometrietype;
+        String identificatie = "nl.imow-" + regeling.eindverantwoordelijke + "." + objectType + "engroep." + UUID.randomUUID().toString().replace("-", "").toLowerCase();
+        long start = System.nanoTime();
+        jdbcTemplate.update(
+                conn -> {
+                    PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                    ps.setString(1, naam);
+                    ps.setDate(2, Date.valueOf(dateStart));
+                    ps.setInt(3, regeling.id);
+                    ps.setString(4, geometrietype);
+                    ps.setString(5, identificatie);
+
+                    return ps;
+                },
+                keyHolder
+        );
+        metrics.record(ImportMetrics.DB_GROEP_INSERT, System.nanoTime() - start);
+
+        return Optional.ofNullable(keyHolder.getKey())
+            .map(Number::intValue)
+            .orElseThrow(() -> new IllegalStateException("Er ging iets mis bij het inserten van de locatie"));
+    }
+
+    @Override
+    public void linkLocatiesToGroep(List<Integer> locatieIds, int groepId) {
+        batchWriter.linkLocatiesToGroep(locatieIds, groepId, batchSize);
+    }
+
+    @Override
+    public void insertInformatieObjectVersie(GioMetadata metadata, String gioName, int groepId) {
+        String sql =
+                "INSERT INTO bzk.informatieobjectversie (frbr_work, frbr_expression, soort_work_id, regeling_id, eindverantwoordelijke_id, maker_id, " +
+                        "formaat_informatieobject_id, naam, officiele_titel, publicatie_instructie_id, stop_schema_versie, achtergrond_verwijzing, " +
+                        "achtergrond_actualiteit, nauwkeurigheid, locatie_id) " +
+                "VALUES (?, ?, 2056, ?, ?, ?, 1410, ?, ?, 3, '1.3.0', ?, ?, ?, ?)";
+
+        long start = System.nanoTime();
+        jdbcTemplate.update(sql, ps -> {
+            ps.setObject(1, metadata.getFrbrWork());
+            ps.setObject(2, metadata.getFrbrExpression());
+            ps.setObject(3, regeling.id);
+            ps.setObject(4, regeling.eindverantwoordelijkeId);
+            ps.setObject(5, regeling.makerId);
+            ps.setObject(6, gioName);
+            ps.setObject(7, metadata.getFrbrWork());
+            ps.setObject(8, metadata.getAchtergrondVerwijzing());
+            ps.setObject(9, metadata.getAchtergrondActualiteit() != null ? Date.valueOf(metadata.getAchtergrondActualiteit()) : null);
+            ps.setObject(10, metadata.getNauwkeurigheid() != null ? Integer.parseInt(metadata.getNauwkeurigheid()) : null);
+            ps.setObject(11, groepId);
+        });
+        metrics.record(ImportMetrics.DB_INFORMATIEOBJECTVERSIE_INSERT, System.nanoTime() - start);
+    }
+}
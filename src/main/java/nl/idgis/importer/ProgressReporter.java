@@ -0,0 +1,34 @@
+package nl.idgis.importer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meldt de voortgang van een import, maar hooguit eens per interval, hoe vaak er ook een update komt.
+ */
+class ProgressReporter {
+
+    private final ImportMetrics metrics;
+    private final long intervalNanos;
+    private final AtomicLong volgendeMelding;
+
+    ProgressReporter(ImportMetrics metrics, int intervalSeconden) {
+        this.metrics = metrics;
+        this.intervalNanos = intervalSeconden * 1_000_000_000L;
+        this.volgendeMelding = new AtomicLong(System.nanoTime() + intervalNanos);
+    }
+
+    void update() {
+        if (intervalNanos <= 0) {
+            return;
+        }
+
+        long nu = System.nanoTime();
+        long volgende = volgendeMelding.get();
+        // Bij meerdere workers meldt alleen de thread die de compareAndSet wint
+        if (nu >= volgende && volgendeMelding.compareAndSet(volgende, nu + intervalNanos)) {
+            long locaties = metrics.getCount(ImportMetrics.LOCATIES);
+            double seconden = metrics.getSeconden();
+            System.out.printf("%d locaties verwerkt in %.0f s (%.0f per seconde)%n", locaties, seconden, locaties / seconden);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package nl.idgis.importer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Begrenst het aantal locaties per seconde dat weggeschreven wordt (token bucket). Onbenutte capaciteit spaart op
+ * tot hooguit een seconde. Een chunk wacht tot de locaties van de vorige chunks aan de beurt geweest zijn, ook als
+ * die chunks door een andere worker weggeschreven worden.
+ */
+final class RateLimiter {
+
+    private static final long MAX_OPGESPAARD_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double nanosPerLocatie;
+    private long volgende = System.nanoTime();
+
+    RateLimiter(int locatiesPerSeconde) {
+        if (locatiesPerSeconde < 1) {
+            throw new IllegalArgumentException("Het maximaal aantal locaties per seconde moet positief zijn: " + locatiesPerSeconde);
+        }
+        this.nanosPerLocatie = 1e9 / locatiesPerSeconde;
+    }
+
+    /**
+     * Wacht tot de locaties weggeschreven mogen worden en geeft de gewachte tijd in nanoseconden terug.
+     */
+    long acquire(int locaties) {
+        long wacht;
+        synchronized (this) {
+            long nu = System.nanoTime();
+            long start = Math.max(volgende, nu - MAX_OPGESPAARD_NANOS);
+            volgende = start + (long) (locaties * nanosPerLocatie);
+            wacht = start - nu;
+        }
+        if (wacht <= 0) {
+            return 0;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wacht);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("De import is onderbroken", e);
+        }
+        return wacht;
+    }
+}
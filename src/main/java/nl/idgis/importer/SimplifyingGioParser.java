@@ -0,0 +1,58 @@
+package nl.idgis.importer;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Een parser die de geometrieen van een andere parser met {@link GmlSimplifier} vereenvoudigt voordat ze
+ * doorgegeven worden, zodat de import, de bulk import en de dry run allemaal de vereenvoudigde GML zien.
+ * Na het parsen wordt gemeld hoeveel kleiner de GML en hoeveel minder punten het geworden is.
+ */
+public class SimplifyingGioParser implements GioParser {
+
+    static final String GML_BYTES_VOOR = "gml.bytes.voor";
+    static final String GML_BYTES_NA = "gml.bytes.na";
+    static final String PUNTEN_VERWIJDERD = "gml.punten.verwijderd";
+
+    private final GioParser parser;
+    private final int decimalen;
+    private final boolean punten;
+
+    /**
+     * @param decimalen aantal decimalen van de coordinaten, in RD New is 3 op de millimeter
+     * @param punten ook dubbele en collineaire punten verwijderen
+     */
+    public SimplifyingGioParser(GioParser parser, int decimalen, boolean punten) {
+        if (decimalen < 0 || decimalen > 9) {
+            throw new IllegalArgumentException("Het aantal decimalen moet tussen 0 en 9 liggen: " + decimalen);
+        }
+        this.parser = parser;
+        this.decimalen = decimalen;
+        this.punten = punten;
+    }
+
+    @Override
+    public GioMetadata parse(File file, int overslaan, Consumer<GioLocatie> consumer) {
+        ImportMetrics metrics = ImportMetrics.current();
+        long[] voor = new long[2];
+        long[] na = new long[2];
+
+        GioMetadata metadata = parser.parse(file, overslaan, locatie -> {
+            GmlSimplifier.Result result = GmlSimplifier.simplify(locatie.getGml(), decimalen, punten);
+            voor[0] += locatie.getGml().length();
+            na[0] += result.getGml().length();
+            voor[1] += result.getPuntenVoor();
+            na[1] += result.getPuntenNa();
+            consumer.accept(new GioLocatie(locatie.getId(), locatie.getNaam(), result.getGml()));
+        });
+
+        metrics.increment(GML_BYTES_VOOR, voor[0]);
+        metrics.increment(GML_BYTES_NA, na[0]);
+        metrics.increment(PUNTEN_VERWIJDERD, voor[1] - na[1]);
+        System.out.printf(Locale.ROOT, "Geometrieen vereenvoudigd: GML van %.1f naar %.1f MB (%.0f%% kleiner), %d van de %d punten verwijderd%n",
+                voor[0] / 1e6, na[0] / 1e6, voor[0] > 0 ? 100.0 * (voor[0] - na[0]) / voor[0] : 0, voor[1] - na[1], voor[1]);
+
+        return metadata;
+    }
+}
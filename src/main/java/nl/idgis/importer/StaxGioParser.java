@@ -0,0 +1,135 @@
+package nl.idgis.importer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Leest een GIO in een doorgang met StAX. Er wordt steeds maar een geo:Locatie in het geheugen gehouden,
+ * zodat het geheugengebruik niet afhangt van de grootte van het bestand.
+ */
+public class StaxGioParser implements GioParser {
+
+    private final XMLInputFactory inputFactory;
+
+    public StaxGioParser() {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    @Override
+    public GioMetadata parse(File file, int overslaan, Consumer<GioLocatie> consumer) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return parse(in, overslaan, consumer);
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("Het GIO bestand kon niet gelezen worden: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Als {@link #parse(File, int, Consumer)}, voor (een deel van) een GIO uit een stream.
+     */
+    GioMetadata parse(InputStream in, int overslaan, Consumer<GioLocatie> consumer) throws XMLStreamException {
+        GioMetadata metadata = new GioMetadata();
+        int locaties = 0;
+
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != START_ELEMENT) {
+                    continue;
+                }
+
+                String namespace = reader.getNamespaceURI();
+                String name = reader.getLocalName();
+                if (GEO_NS.equals(namespace)) {
+                    if ("Locatie".equals(name)) {
+                        if (locaties++ < overslaan) {
+                            skipElement(reader);
+                        } else {
+                            consumer.accept(readLocatie(reader));
+                        }
+                    } else if ("FRBRWork".equals(name) && metadata.getFrbrWork() == null) {
+                        metadata.setFrbrWork(reader.getElementText());
+                    } else if ("FRBRExpression".equals(name) && metadata.getFrbrExpression() == null) {
+                        metadata.setFrbrExpression(reader.getElementText());
+                    }
+                } else if (GIO_NS.equals(namespace)) {
+                    if ("achtergrondVerwijzing".equals(name) && metadata.getAchtergrondVerwijzing() == null) {
+                        metadata.setAchtergrondVerwijzing(reader.getElementText());
+                    } else if ("achtergrondActualiteit".equals(name) && metadata.getAchtergrondActualiteit() == null) {
+                        metadata.setAchtergrondActualiteit(reader.getElementText());
+                    } else if ("nauwkeurigheid".equals(name) && metadata.getNauwkeurigheid() == null) {
+                        metadata.setNauwkeurigheid(reader.getElementText());
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return metadata;
+    }
+
+    private GioLocatie readLocatie(XMLStreamReader reader) throws XMLStreamException {
+        String naam = null;
+        String id = null;
+        // Alleen de buitenste elementen met een gml:id, meestal is dat er een per locatie
+        Map<String, String> geometrieen = new HashMap<>(4);
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                String gmlId = reader.getAttributeValue(GML_NS, "id");
+                if (gmlId != null) {
+                    geometrieen.put(gmlId, GmlWriter.write(reader));
+                } else if (depth == 1 && GEO_NS.equals(reader.getNamespaceURI()) && "naam".equals(reader.getLocalName())) {
+                    naam = reader.getElementText();
+                } else if (id == null && BASISGEO_NS.equals(reader.getNamespaceURI()) && "id".equals(reader.getLocalName())) {
+                    id = reader.getElementText();
+                } else {
+                    depth++;
+                }
+            } else if (event == END_ELEMENT) {
+                depth--;
+            }
+        }
+
+        if (id == null) {
+            throw new IllegalStateException("Locatie '" + naam + "' heeft geen basisgeo:id");
+        }
+
+        String gml = geometrieen.get("id-" + id);
+        if (gml == null) {
+            throw new IllegalStateException("Geen GML geometrie gevonden voor locatie met id '" + id + "'");
+        }
+
+        return new GioLocatie(id, naam, gml);
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                depth++;
+            } else if (event == END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
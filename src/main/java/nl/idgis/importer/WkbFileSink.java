@@ -0,0 +1,145 @@
+package nl.idgis.importer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Schrijft een GIO naar een plat binair bestand in plaats van naar de database, voor analyse buiten PostGIS, het
+ * vullen van testomgevingen en om het parsen los van de database te meten. De GML wordt in Java naar WKB omgezet
+ * (zie {@link GmlWkbWriter}), bij meerdere threads parallel in de workers; alleen het wegschrijven zelf is serieel.
+ *
+ * Het bestand bestaat uit records na de header "GIOWKB" en een versie (short, 1). Ieder record begint met een
+ * byte die het type aangeeft, strings zijn modified UTF-8 zoals {@link DataOutputStream#writeUTF} (null als lege
+ * string) en getallen zijn big endian:
+ * <pre>
+ * 'L' locatie:                int locatieId, basisgeo:id, naam, geometrietype, int lengte, WKB
+ * 'G' groepslocatie:          int groepId, naam, geometrietype
+ * 'K' koppeling aan de groep: int groepId, int aantal, aantal x int locatieId (in documentvolgorde)
+ * 'I' informatieobjectversie: int groepId, naam, FRBRWork, FRBRExpression, achtergrondVerwijzing,
+ *                             achtergrondActualiteit, nauwkeurigheid
+ * 'E' einde van het bestand
+ * </pre>
+ * De locatie ids zijn volgnummers binnen het bestand, vanaf 1. Een basisgeo:id dat vaker voorkomt heeft een locatie.
+ */
+class WkbFileSink implements GioSink, AutoCloseable {
+
+    static final String WKB_BYTES = "wkb.bytes";
+
+    private static final int VERSIE = 1;
+
+    private final ImportMetrics metrics;
+    private final DataOutputStream out;
+    private int locatieId;
+    private int groepId;
+
+    WkbFileSink(File file, ImportMetrics metrics) {
+        this.metrics = metrics;
+        try {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            out.writeBytes("GIOWKB");
+            out.writeShort(VERSIE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Het bestand kon niet aangemaakt worden: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public int[] writeLocaties(List<GioLocatie> chunk) {
+        // Het omzetten naar WKB kan parallel, het schrijven niet
+        byte[][] wkb = new byte[chunk.size()][];
+        long bytes = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            GioLocatie locatie = chunk.get(i);
+            try {
+                wkb[i] = GmlWkbWriter.write(locatie.getGml());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("De geometrie van locatie " + locatie.getId() + " kon niet omgezet worden: " + e.getMessage(), e);
+            }
+            bytes += wkb[i].length;
+        }
+        metrics.increment(WKB_BYTES, bytes);
+
+        int[] ids = new int[chunk.size()];
+        synchronized (this) {
+            try {
+                for (int i = 0; i < chunk.size(); i++) {
+                    GioLocatie locatie = chunk.get(i);
+                    ids[i] = ++locatieId;
+                    out.writeByte('L');
+                    out.writeInt(ids[i]);
+                    writeString(locatie.getId());
+                    writeString(locatie.getNaam());
+                    writeString(locatie.getGeometrietype());
+                    out.writeInt(wkb[i].length);
+                    out.write(wkb[i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        metrics.increment(ImportMetrics.GEOMETRIEEN_NIEUW, chunk.size());
+        return ids;
+    }
+
+    @Override
+    public synchronized int insertGroep(String naam, String geometrietype) {
+        try {
+            out.writeByte('G');
+            out.writeInt(++groepId);
+            writeString(naam);
+            writeString(geometrietype);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return groepId;
+    }
+
+    @Override
+    public synchronized void linkLocatiesToGroep(List<Integer> locatieIds, int groepId) {
+        try {
+            out.writeByte('K');
+            out.writeInt(groepId);
+            out.writeInt(locatieIds.size());
+            for (int id : locatieIds) {
+                out.writeInt(id);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void insertInformatieObjectVersie(GioMetadata metadata, String gioName, int groepId) {
+        try {
+            out.writeByte('I');
+            out.writeInt(groepId);
+            writeString(gioName);
+            writeString(metadata.getFrbrWork());
+            writeString(metadata.getFrbrExpression());
+            writeString(metadata.getAchtergrondVerwijzing());
+            writeString(metadata.getAchtergrondActualiteit());
+            writeString(metadata.getNauwkeurigheid());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            out.writeByte('E');
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        out.writeUTF(value != null ? value : "");
+    }
+}
@@ -0,0 +1,86 @@
+package nl.idgis.importer;
+
+/**
+ * XXH64 over een stroom van 64-bits waarden, alsof iedere waarde als 8 bytes little endian aangeboden wordt. Er
+ * wordt geen byte array opgebouwd, de stripes van 32 bytes worden direct verwerkt.
+ */
+final class XxHash64 {
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private final long seed;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private final long[] lanes = new long[4];
+    private int buffered;
+    private long length;
+
+    XxHash64(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    void reset() {
+        v1 = seed + PRIME64_1 + PRIME64_2;
+        v2 = seed + PRIME64_2;
+        v3 = seed;
+        v4 = seed - PRIME64_1;
+        buffered = 0;
+        length = 0;
+    }
+
+    void update(long value) {
+        lanes[buffered++] = value;
+        length += 8;
+        if (buffered == 4) {
+            v1 = round(v1, lanes[0]);
+            v2 = round(v2, lanes[1]);
+            v3 = round(v3, lanes[2]);
+            v4 = round(v4, lanes[3]);
+            buffered = 0;
+        }
+    }
+
+    long digest() {
+        long hash;
+        if (length >= 32) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = seed + PRIME64_5;
+        }
+        hash += length;
+
+        for (int i = 0; i < buffered; i++) {
+            hash ^= round(0, lanes[i]);
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long acc, long lane) {
+        acc += lane * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long merge(long hash, long value) {
+        hash ^= round(0, value);
+        return hash * PRIME64_1 + PRIME64_4;
+    }
+}
@@ -0,0 +1,5 @@
+-- Hash van de GML per geometrie, voor een delta import (import.delta=true). Zie GioDelta.
+CREATE TABLE IF NOT EXISTS bzk.gio_geometrie_hash (
+    geometrie_id integer PRIMARY KEY REFERENCES bzk.geometrie (id) ON DELETE CASCADE,
+    hash bytea NOT NULL
+);
@@ -0,0 +1,41 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeduplicatingGioParserTest {
+
+    private static final String GML = "xmlns:gml=\"http://www.opengis.net/gml/3.2\"";
+
+    @Test
+    void gelijkeGeometrieOnderAnderId() {
+        List<GioLocatie> invoer = List.of(
+                new GioLocatie("a", "A", "<gml:Point " + GML + " gml:id=\"id-a\"><gml:pos>1 2</gml:pos></gml:Point>"),
+                new GioLocatie("b", "B", "<gml:Point " + GML + " gml:id=\"id-b\"><gml:pos>1 3</gml:pos></gml:Point>"),
+                // Alleen de gml:id en de schrijfwijze van de getallen verschillen van a
+                new GioLocatie("c", "C", "<gml:Point " + GML + " gml:id=\"id-c\"><gml:pos>1.0  2.000</gml:pos></gml:Point>"),
+                // Hetzelfde id nog een keer is geen duplicaat, dat handelt de import zelf af
+                new GioLocatie("a", "A2", "<gml:Point " + GML + " gml:id=\"id-a\"><gml:pos>1 2</gml:pos></gml:Point>"));
+
+        ImportMetrics metrics = new ImportMetrics(MetricsRegistry.NOOP, "test");
+        List<GioLocatie> uitvoer = new ArrayList<>();
+        try (ImportMetrics.Scope scope = metrics.bind()) {
+            new DeduplicatingGioParser((file, overslaan, consumer) -> {
+                invoer.forEach(consumer);
+                return null;
+            }).parse(new File("test.gml"), uitvoer::add);
+        }
+
+        assertEquals(List.of("a", "b", "a", "a"), uitvoer.stream().map(GioLocatie::getId).collect(Collectors.toList()));
+        // De naam en de GML van de latere locatie blijven behouden
+        assertEquals("C", uitvoer.get(2).getNaam());
+        assertEquals(invoer.get(2).getGml(), uitvoer.get(2).getGml());
+        assertEquals(1, metrics.getCount(DeduplicatingGioParser.DUPLICATEN));
+    }
+}
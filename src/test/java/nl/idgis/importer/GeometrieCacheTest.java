@@ -0,0 +1,76 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeometrieCacheTest {
+
+    @Test
+    void groeit() {
+        // Ruim voorbij de beginomvang van de tabel, zodat die een paar keer vergroot wordt
+        Random random = new Random(1);
+        List<String> ids = new ArrayList<>();
+        GeometrieCache cache = new GeometrieCache();
+        for (int i = 1; i <= 10_000; i++) {
+            String id = new UUID(random.nextLong(), random.nextLong()).toString();
+            ids.add(id);
+            cache.putIfAbsent(id, i, i + 100_000);
+        }
+
+        assertEquals(10_000, cache.size());
+        for (int i = 1; i <= ids.size(); i++) {
+            assertEquals(i, cache.getGeometrieId(ids.get(i - 1)));
+            assertEquals(i + 100_000, cache.getLocatieId(ids.get(i - 1)));
+        }
+        assertFalse(cache.contains(new UUID(random.nextLong(), random.nextLong()).toString()));
+    }
+
+    @Test
+    void eersteLocatieBlijftStaan() {
+        GeometrieCache cache = new GeometrieCache();
+        String id = "bdd640fb-0667-1ad1-1c80-317fa3b1799d";
+        cache.putIfAbsent(id, 1, 2);
+        cache.putIfAbsent(id, 3, 4);
+
+        assertEquals(1, cache.getGeometrieId(id));
+        assertEquals(2, cache.getLocatieId(id));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void geenUuid() {
+        GeometrieCache cache = new GeometrieCache();
+        String uuid = "bdd640fb-0667-1ad1-1c80-317fa3b1799d";
+        // Hoofdletters zijn een andere string en dus een andere geometrie_id, net als in de database
+        String hoofdletters = uuid.toUpperCase();
+        cache.putIfAbsent(uuid, 1, 2);
+        cache.putIfAbsent(hoofdletters, 3, 4);
+        cache.putIfAbsent("geometrie-1", 5, 6);
+        cache.putIfAbsent("bdd640fb-0667-1ad1-1c80-317fa3b1799", 7, 8);
+
+        assertEquals(4, cache.size());
+        assertEquals(2, cache.getLocatieId(uuid));
+        assertEquals(4, cache.getLocatieId(hoofdletters));
+        assertEquals(6, cache.getLocatieId("geometrie-1"));
+        assertEquals(8, cache.getLocatieId("bdd640fb-0667-1ad1-1c80-317fa3b1799"));
+        assertTrue(cache.contains("geometrie-1"));
+        assertEquals(0, cache.getLocatieId("geometrie-2"));
+    }
+
+    @Test
+    void ongeldigeId() {
+        GeometrieCache cache = new GeometrieCache();
+        assertThrows(IllegalArgumentException.class, () -> cache.putIfAbsent("a", 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> cache.putIfAbsent("a", 1, -1));
+        assertFalse(cache.contains("a"));
+    }
+}
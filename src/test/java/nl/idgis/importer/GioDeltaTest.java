@@ -0,0 +1,74 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class GioDeltaTest {
+
+    private static final String GML = "<gml:Point><gml:pos>1 2</gml:pos></gml:Point>";
+    private static final String GEWIJZIGDE_GML = "<gml:Point><gml:pos>1 3</gml:pos></gml:Point>";
+
+    @Test
+    void ongewijzigd() {
+        GioDelta delta = delta("a", new GioDelta.Vorige(10, 20, GioDelta.hash(GML)));
+        GeometrieCache cache = new GeometrieCache();
+
+        assertEquals(GioDelta.Status.ONGEWIJZIGD, delta.vergelijk("a", GioDelta.hash(GML), cache));
+        assertEquals(10, cache.getGeometrieId("a"));
+        assertEquals(20, cache.getLocatieId("a"));
+    }
+
+    @Test
+    void gewijzigd() {
+        GioDelta delta = delta("a", new GioDelta.Vorige(10, 20, GioDelta.hash(GML)));
+        GeometrieCache cache = new GeometrieCache();
+
+        assertEquals(GioDelta.Status.GEWIJZIGD, delta.vergelijk("a", GioDelta.hash(GEWIJZIGDE_GML), cache));
+        assertFalse(cache.contains("a"));
+    }
+
+    @Test
+    void nieuw() {
+        GioDelta delta = delta("a", new GioDelta.Vorige(10, 20, GioDelta.hash(GML)));
+        GeometrieCache cache = new GeometrieCache();
+
+        assertEquals(GioDelta.Status.NIEUW, delta.vergelijk("b", GioDelta.hash(GML), cache));
+        assertFalse(cache.contains("b"));
+    }
+
+    @Test
+    void bestaandeRijZonderHashMetGewijzigdeGml() {
+        // Geimporteerd voor er hashes waren: niet als ongewijzigd behandelen voordat de geometrie vergeleken is
+        GioDelta delta = delta("a", new GioDelta.Vorige(10, 20, null));
+        GeometrieCache cache = new GeometrieCache();
+
+        assertEquals(GioDelta.Status.ONBEKEND, delta.vergelijk("a", GioDelta.hash(GEWIJZIGDE_GML), cache));
+        assertFalse(cache.contains("a"));
+        assertEquals(10, delta.getVorigeGeometrieId("a"));
+
+        delta.bevestig("a", false, cache);
+        assertFalse(cache.contains("a"), "een gewijzigde geometrie mag de oude rij niet hergebruiken");
+    }
+
+    @Test
+    void bestaandeRijZonderHashMetGelijkeGml() {
+        GioDelta delta = delta("a", new GioDelta.Vorige(10, 20, null));
+        GeometrieCache cache = new GeometrieCache();
+
+        assertEquals(GioDelta.Status.ONBEKEND, delta.vergelijk("a", GioDelta.hash(GML), cache));
+        delta.bevestig("a", true, cache);
+        assertEquals(10, cache.getGeometrieId("a"));
+        assertEquals(20, cache.getLocatieId("a"));
+    }
+
+    private static GioDelta delta(String geometrieId, GioDelta.Vorige vorige) {
+        Map<String, GioDelta.Vorige> map = new HashMap<>();
+        map.put(geometrieId, vorige);
+        return new GioDelta("/join/id/regdata/gm0297/2021/test", map);
+    }
+}
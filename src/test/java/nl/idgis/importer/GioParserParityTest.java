@@ -0,0 +1,69 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * De DOM, StAX en mapped parser moeten voor hetzelfde GIO dezelfde locaties en metadata opleveren, ook bij het
+ * overslaan van locaties bij het hervatten van een import.
+ */
+class GioParserParityTest {
+
+    @TempDir
+    static Path directory;
+
+    private static File gio;
+
+    @BeforeAll
+    static void genereer() throws IOException {
+        gio = new SyntheticGioGenerator().locaties(500).vertices(8).mix(0.2, 0.3).seed(7)
+                .write(directory.resolve("synthetisch.gml")).toFile();
+    }
+
+    @Test
+    void zelfdeLocaties() {
+        List<String> dom = parse(new DomGioParser(), 0);
+        assertEquals(500, dom.size());
+        assertEquals(dom, parse(new StaxGioParser(), 0));
+        assertEquals(dom, parse(new MappedGioParser(1), 0));
+        assertEquals(dom, parse(new MappedGioParser(4), 0));
+    }
+
+    @Test
+    void overslaan() {
+        List<String> dom = parse(new DomGioParser(), 0);
+        assertEquals(dom.subList(123, dom.size()), parse(new DomGioParser(), 123));
+        assertEquals(dom.subList(123, dom.size()), parse(new StaxGioParser(), 123));
+        assertEquals(dom.subList(123, dom.size()), parse(new MappedGioParser(4), 123));
+    }
+
+    @Test
+    void zelfdeMetadata() {
+        String dom = metadata(new DomGioParser());
+        assertEquals("/join/id/regdata/gm9999/2023/synthetisch7|/join/id/regdata/gm9999/2023/synthetisch7/nld@2023-01-01;1|cbs|2021-01-01|null", dom);
+        assertEquals(dom, metadata(new StaxGioParser()));
+        assertEquals(dom, metadata(new MappedGioParser(4)));
+    }
+
+    private static List<String> parse(GioParser parser, int overslaan) {
+        List<String> locaties = new ArrayList<>();
+        parser.parse(gio, overslaan, locatie -> locaties.add(
+                locatie.getId() + "|" + locatie.getNaam() + "|" + locatie.getGeometrietype() + "|" + locatie.getGml()));
+        return locaties;
+    }
+
+    private static String metadata(GioParser parser) {
+        GioMetadata metadata = parser.parse(gio, locatie -> { });
+        return String.join("|", metadata.getFrbrWork(), metadata.getFrbrExpression(), metadata.getAchtergrondVerwijzing(),
+                metadata.getAchtergrondActualiteit(), String.valueOf(metadata.getNauwkeurigheid()));
+    }
+}
@@ -0,0 +1,97 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GioValidatorTest {
+
+    private static final String VLAK = "<gml:Polygon gml:id=\"id-%s\"><gml:exterior><gml:LinearRing><gml:posList>%s</gml:posList>"
+            + "</gml:LinearRing></gml:exterior></gml:Polygon>";
+    private static final String RING = "0 0 10 0 10 10 0 0";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void geldig() throws IOException {
+        File gio = gio(locatie("a", String.format(VLAK, "a", RING)), locatie("b", String.format(VLAK, "b", RING)));
+
+        assertEquals("vlak", new GioValidator().valideer(gio));
+    }
+
+    @Test
+    void verschillendeGeometrietypen() throws IOException {
+        File gio = gio(locatie("a", String.format(VLAK, "a", RING)),
+                locatie("b", "<gml:Point gml:id=\"id-b\"><gml:pos>1 2</gml:pos></gml:Point>"));
+
+        List<String> fouten = new GioValidator().controleer(gio);
+        assertEquals(1, fouten.size(), fouten.toString());
+        assertTrue(fouten.get(0).contains("verschillende geometrietypen"), fouten.get(0));
+    }
+
+    @Test
+    void fouteCoordinaten() throws IOException {
+        File gio = gio(locatie("getal", String.format(VLAK, "getal", "0 0 10 x 10 10 0 0")),
+                locatie("oneven", String.format(VLAK, "oneven", "0 0 10 0 10 10 0")),
+                locatie("open", String.format(VLAK, "open", "0 0 10 0 10 10 0 1")),
+                locatie("kort", String.format(VLAK, "kort", "0 0 10 0 0 0")));
+
+        // Alle fouten in een keer, niet alleen de eerste
+        List<String> fouten = new GioValidator().controleer(gio);
+        for (String id : List.of("getal", "oneven", "open", "kort")) {
+            assertTrue(fouten.stream().anyMatch(fout -> fout.startsWith("Locatie " + id + ":")), id + " ontbreekt in " + fouten);
+        }
+    }
+
+    @Test
+    void zonderId() throws IOException {
+        File gio = gio("<geo:Locatie><geo:geometrie><basisgeo:Geometrie><basisgeo:geometrie>" + String.format(VLAK, "x", RING)
+                + "</basisgeo:geometrie></basisgeo:Geometrie></geo:geometrie></geo:Locatie>");
+
+        assertEquals(1, new GioValidator().controleer(gio).size());
+    }
+
+    @Test
+    void geenLocaties() throws IOException {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new GioValidator().valideer(gio()));
+        assertTrue(e.getMessage().contains("geen locaties"), e.getMessage());
+    }
+
+    @Test
+    void maximumAantalFouten() throws IOException {
+        String[] locaties = new String[30];
+        for (int i = 0; i < locaties.length; i++) {
+            locaties[i] = locatie("l" + i, String.format(VLAK, "l" + i, "0 0 x"));
+        }
+        GioValidator validator = new GioValidator();
+
+        assertEquals(20, validator.controleer(gio(locaties)).size());
+        assertTrue(validator.isAfgekapt());
+    }
+
+    private static String locatie(String id, String gml) {
+        return "<geo:Locatie><geo:geometrie><basisgeo:Geometrie><basisgeo:id>" + id + "</basisgeo:id><basisgeo:geometrie>" + gml
+                + "</basisgeo:geometrie></basisgeo:Geometrie></geo:geometrie></geo:Locatie>";
+    }
+
+    private File gio(String... locaties) throws IOException {
+        String xml = "<geo:GeoInformatieObjectVaststelling xmlns:geo=\"" + GioParser.GEO_NS + "\" xmlns:basisgeo=\"" + GioParser.BASISGEO_NS
+                + "\" xmlns:gml=\"" + GioParser.GML_NS + "\"><geo:vastgesteldeVersie><geo:GeoInformatieObjectVersie><geo:locaties>"
+                + String.join("", locaties)
+                + "</geo:locaties></geo:GeoInformatieObjectVersie></geo:vastgesteldeVersie></geo:GeoInformatieObjectVaststelling>";
+        Path file = Files.createTempFile(directory, "gio-", ".gml");
+        Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+}
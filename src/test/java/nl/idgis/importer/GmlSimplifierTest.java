@@ -0,0 +1,68 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GmlSimplifierTest {
+
+    @Test
+    void afronden() {
+        GmlSimplifier.Result result = GmlSimplifier.simplify(
+                "<gml:Point gml:id=\"id-1.5\"><gml:pos>155000.12345 -463000.5</gml:pos></gml:Point>", 3, false);
+
+        // Het attribuut blijft letterlijk staan, overbodige nullen verdwijnen
+        assertEquals("<gml:Point gml:id=\"id-1.5\"><gml:pos>155000.123 -463000.5</gml:pos></gml:Point>", result.getGml());
+        assertEquals(1, result.getPuntenVoor());
+        assertEquals(1, result.getPuntenNa());
+    }
+
+    @Test
+    void kleineFractie() {
+        assertEquals("<gml:pos>1.005 2 0.001</gml:pos>",
+                GmlSimplifier.simplify("<gml:pos>1.0049 2.0001 0.0006</gml:pos>", 3, false).getGml());
+    }
+
+    @Test
+    void dubbeleEnCollineairePunten() {
+        String gml = "<gml:LineString><gml:posList>0 0 0 0 1 0 2 0 2 0.0001 2 1</gml:posList></gml:LineString>";
+
+        GmlSimplifier.Result result = GmlSimplifier.simplify(gml, 2, true);
+        assertEquals("<gml:LineString><gml:posList>0 0 2 0 2 1</gml:posList></gml:LineString>", result.getGml());
+        assertEquals(6, result.getPuntenVoor());
+        assertEquals(3, result.getPuntenNa());
+
+        // Zonder het verwijderen van punten alleen afronden
+        assertEquals("<gml:LineString><gml:posList>0 0 0 0 1 0 2 0 2 0 2 1</gml:posList></gml:LineString>",
+                GmlSimplifier.simplify(gml, 2, false).getGml());
+    }
+
+    @Test
+    void ringHoudtMinstensVierPunten() {
+        // Na het verwijderen zou de ring maar 3 punten hebben, dan blijven alle afgeronde punten staan
+        String gml = "<gml:LinearRing><gml:posList>0 0 1 0 2 0 0 0</gml:posList></gml:LinearRing>";
+        GmlSimplifier.Result result = GmlSimplifier.simplify(gml, 0, true);
+
+        assertEquals(gml, result.getGml());
+        assertEquals(4, result.getPuntenNa());
+    }
+
+    @Test
+    void driedimensionaal() {
+        // Dubbele punten verdwijnen, collineaire punten worden alleen in 2 dimensies herkend
+        assertEquals("<gml:posList srsDimension=\"3\">0 0 1 1 0 1 2 0 1</gml:posList>",
+                GmlSimplifier.simplify("<gml:posList srsDimension=\"3\">0 0 1 0 0 1 1 0 1 2 0 1.2</gml:posList>", 0, true).getGml());
+    }
+
+    @Test
+    void gml2Coordinates() {
+        assertEquals("<gml:coordinates>1.2,3.5 4,5</gml:coordinates>",
+                GmlSimplifier.simplify("<gml:coordinates>1.23,3.45 4.0,5.01</gml:coordinates>", 1, true).getGml());
+    }
+
+    @Test
+    void ongeldigeCoordinaat() {
+        assertThrows(IllegalArgumentException.class, () -> GmlSimplifier.simplify("<gml:pos>1 x</gml:pos>", 3, false));
+    }
+}
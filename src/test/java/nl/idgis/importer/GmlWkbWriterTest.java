@@ -0,0 +1,207 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * De verwachte WKB is los van {@link GmlWkbWriter} bepaald: byte order, type, aantallen en coordinaten (big endian
+ * doubles) in de volgorde van ISO WKB. De spaties in de hex strings scheiden alleen de onderdelen.
+ */
+class GmlWkbWriterTest {
+
+    private static final String GML = "xmlns:gml=\"http://www.opengis.net/gml/3.2\"";
+
+    @Test
+    void point() {
+        assertWkb("00 00000001 3FF0000000000000 4000000000000000",
+                "<gml:Point " + GML + " gml:id=\"p\" srsName=\"urn:ogc:def:crs:EPSG::28992\"><gml:pos>1 2</gml:pos></gml:Point>");
+    }
+
+    @Test
+    void lineString3d() {
+        assertWkb("00 000003EA 00000002"
+                        + " 0000000000000000 0000000000000000 3FF0000000000000"
+                        + " 3FF0000000000000 3FF0000000000000 4000000000000000",
+                "<gml:LineString " + GML + "><gml:posList srsDimension=\"3\">0 0 1 1 1 2</gml:posList></gml:LineString>");
+    }
+
+    @Test
+    void polygonExteriorFirst() {
+        String wkb = "00 00000003 00000002"
+                + " 00000005 0000000000000000 0000000000000000 4024000000000000 0000000000000000 4024000000000000"
+                + " 4024000000000000 0000000000000000 4024000000000000 0000000000000000 0000000000000000"
+                + " 00000005 4000000000000000 4000000000000000 4000000000000000 4010000000000000 4010000000000000"
+                + " 4010000000000000 4010000000000000 4000000000000000 4000000000000000 4000000000000000";
+        String exterior = "<gml:exterior><gml:LinearRing><gml:posList>0 0 10 0 10 10 0 10 0 0</gml:posList></gml:LinearRing></gml:exterior>";
+        String interior = "<gml:interior><gml:LinearRing><gml:posList>2 2 2 4 4 4 4 2 2 2</gml:posList></gml:LinearRing></gml:interior>";
+
+        assertWkb(wkb, "<gml:Polygon " + GML + ">" + exterior + interior + "</gml:Polygon>");
+        // In WKB komt de buitenring altijd eerst, ook als de GML met een binnenring begint
+        assertWkb(wkb, "<gml:Polygon " + GML + ">" + interior + exterior + "</gml:Polygon>");
+    }
+
+    @Test
+    void ringOrientationUnchanged() {
+        // Met de klok mee, de writer draait ringen niet om
+        assertWkb("00 00000003 00000001 00000005"
+                        + " 0000000000000000 0000000000000000 0000000000000000 3FF0000000000000 3FF0000000000000"
+                        + " 3FF0000000000000 3FF0000000000000 0000000000000000 0000000000000000 0000000000000000",
+                "<gml:Polygon " + GML + "><gml:exterior><gml:LinearRing><gml:posList>0 0 0 1 1 1 1 0 0 0</gml:posList>"
+                        + "</gml:LinearRing></gml:exterior></gml:Polygon>");
+    }
+
+    @Test
+    void curveSegmentsJoined() {
+        // Het gedeelde punt van de segmenten komt maar een keer in de LineString
+        assertWkb("00 00000002 00000003"
+                        + " 0000000000000000 0000000000000000 3FF0000000000000 3FF0000000000000 4000000000000000 0000000000000000",
+                "<gml:Curve " + GML + "><gml:segments>"
+                        + "<gml:LineStringSegment><gml:posList>0 0 1 1</gml:posList></gml:LineStringSegment>"
+                        + "<gml:LineStringSegment><gml:posList>1 1 2 0</gml:posList></gml:LineStringSegment>"
+                        + "</gml:segments></gml:Curve>");
+    }
+
+    @Test
+    void multiSurface() {
+        assertWkb("00 00000006 00000002"
+                        + " 00 00000003 00000001 00000004 0000000000000000 0000000000000000 3FF0000000000000 0000000000000000"
+                        + " 3FF0000000000000 3FF0000000000000 0000000000000000 0000000000000000"
+                        + " 00 00000003 00000001 00000004 4014000000000000 4014000000000000 4018000000000000 4014000000000000"
+                        + " 4018000000000000 4018000000000000 4014000000000000 4014000000000000",
+                "<gml:MultiSurface " + GML + ">"
+                        + "<gml:surfaceMember><gml:Polygon><gml:exterior><gml:LinearRing><gml:posList>0 0 1 0 1 1 0 0</gml:posList>"
+                        + "</gml:LinearRing></gml:exterior></gml:Polygon></gml:surfaceMember>"
+                        + "<gml:surfaceMember><gml:Polygon><gml:exterior><gml:LinearRing><gml:posList>5 5 6 5 6 6 5 5</gml:posList>"
+                        + "</gml:LinearRing></gml:exterior></gml:Polygon></gml:surfaceMember>"
+                        + "</gml:MultiSurface>");
+    }
+
+    @Test
+    void gml2Coordinates3d() {
+        assertWkb("00 000003EB 00000001 00000004"
+                        + " 0000000000000000 0000000000000000 3FF0000000000000 3FF0000000000000 0000000000000000 3FF0000000000000"
+                        + " 3FF0000000000000 3FF0000000000000 3FF0000000000000 0000000000000000 0000000000000000 3FF0000000000000",
+                "<gml:Polygon " + GML + "><gml:outerBoundaryIs><gml:LinearRing><gml:coordinates>0,0,1 1,0,1 1,1,1 0,0,1</gml:coordinates>"
+                        + "</gml:LinearRing></gml:outerBoundaryIs></gml:Polygon>");
+    }
+
+    @Test
+    void roundTrip() {
+        // Zoals GmlWriter een locatie uit een GIO schrijft, terug gelezen als WKT
+        String gml = "<gml:MultiSurface " + GML + " gml:id=\"id-1\" srsName=\"urn:ogc:def:crs:EPSG::28992\">"
+                + "<gml:surfaceMember><gml:Polygon gml:id=\"id-1-0\">"
+                + "<gml:exterior><gml:LinearRing><gml:posList srsDimension=\"2\">155000.5 463000.25 155100 463000 155100 463100 155000.5 463000.25</gml:posList></gml:LinearRing></gml:exterior>"
+                + "<gml:interior><gml:LinearRing><gml:posList srsDimension=\"2\">155050 463010 155060 463020 155090 463020 155050 463010</gml:posList></gml:LinearRing></gml:interior>"
+                + "</gml:Polygon></gml:surfaceMember>"
+                + "<gml:surfaceMember><gml:Polygon gml:id=\"id-1-1\">"
+                + "<gml:exterior><gml:LinearRing><gml:posList srsDimension=\"2\">0 0 1 0 1 1 0 0</gml:posList></gml:LinearRing></gml:exterior>"
+                + "</gml:Polygon></gml:surfaceMember>"
+                + "</gml:MultiSurface>";
+
+        assertEquals("MULTIPOLYGON(((155000.5 463000.25,155100 463000,155100 463100,155000.5 463000.25),"
+                        + "(155050 463010,155060 463020,155090 463020,155050 463010)),((0 0,1 0,1 1,0 0)))",
+                Wkt.of(GmlWkbWriter.write(gml)));
+    }
+
+    @Test
+    void arcIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> GmlWkbWriter.write(
+                "<gml:Curve " + GML + "><gml:segments><gml:Arc><gml:posList>0 0 1 1 2 0</gml:posList></gml:Arc></gml:segments></gml:Curve>"));
+        assertTrue(e.getMessage().contains("gml:Arc"), e.getMessage());
+    }
+
+    @Test
+    void unknownElementIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> GmlWkbWriter.write(
+                "<gml:Solid " + GML + "><gml:exterior/></gml:Solid>"));
+        assertTrue(e.getMessage().contains("gml:Solid"), e.getMessage());
+    }
+
+    @Test
+    void incompletePositionIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> GmlWkbWriter.write(
+                "<gml:LineString " + GML + "><gml:posList>0 0 1</gml:posList></gml:LineString>"));
+    }
+
+    private static void assertWkb(String hex, String gml) {
+        StringBuilder actual = new StringBuilder();
+        for (byte b : GmlWkbWriter.write(gml)) {
+            actual.append(String.format("%02X", b));
+        }
+        assertEquals(hex.replace(" ", ""), actual.toString());
+    }
+
+    // Leest big endian ISO WKB van 2 dimensies terug als WKT
+    private static class Wkt {
+
+        private final ByteBuffer buffer;
+        private final StringBuilder wkt = new StringBuilder();
+
+        private Wkt(byte[] wkb) {
+            this.buffer = ByteBuffer.wrap(wkb);
+        }
+
+        static String of(byte[] wkb) {
+            Wkt wkt = new Wkt(wkb);
+            wkt.geometrie(true);
+            assertEquals(wkb.length, wkt.buffer.position(), "niet alle bytes gelezen");
+            return wkt.wkt.toString();
+        }
+
+        private void geometrie(boolean metNaam) {
+            assertEquals(0, buffer.get(), "byte order");
+            int type = buffer.getInt();
+            switch (type) {
+                case 1:
+                    wkt.append(metNaam ? "POINT(" : "(");
+                    positie();
+                    wkt.append(')');
+                    break;
+                case 2:
+                    wkt.append(metNaam ? "LINESTRING" : "");
+                    posities();
+                    break;
+                case 3:
+                    wkt.append(metNaam ? "POLYGON" : "");
+                    lijst(this::posities);
+                    break;
+                case 6:
+                    wkt.append("MULTIPOLYGON");
+                    lijst(() -> geometrie(false));
+                    break;
+                default:
+                    throw new AssertionError("onverwacht WKB type " + type);
+            }
+        }
+
+        private void lijst(Runnable lid) {
+            int aantal = buffer.getInt();
+            wkt.append('(');
+            for (int i = 0; i < aantal; i++) {
+                if (i > 0) {
+                    wkt.append(',');
+                }
+                lid.run();
+            }
+            wkt.append(')');
+        }
+
+        private void posities() {
+            lijst(this::positie);
+        }
+
+        private void positie() {
+            wkt.append(getal(buffer.getDouble())).append(' ').append(getal(buffer.getDouble()));
+        }
+
+        private static String getal(double waarde) {
+            return waarde == Math.rint(waarde) ? Long.toString((long) waarde) : String.format(Locale.ROOT, "%s", waarde);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void hervat() throws IOException {
+        GioImportJob job = job("a");
+        ImportJournal journal = ImportJournal.open(directory.toFile(), job);
+        assertEquals(0, journal.size());
+        journal.append(List.of(1, 2));
+        journal.append(List.of());
+        journal.append(List.of(3));
+        journal.close();
+
+        journal = ImportJournal.open(directory.toFile(), job);
+        assertEquals(List.of(1, 2, 3), journal.getLocatieIds());
+        journal.append(List.of(4));
+        journal.close();
+
+        assertEquals(List.of(1, 2, 3, 4), ImportJournal.open(directory.toFile(), job).getLocatieIds());
+    }
+
+    @Test
+    void halveCheckpointWordtAfgekapt() throws IOException {
+        GioImportJob job = job("a");
+        ImportJournal journal = ImportJournal.open(directory.toFile(), job);
+        journal.append(List.of(1, 2));
+        journal.close();
+        Files.write(journalFile(job), "3,4".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        journal = ImportJournal.open(directory.toFile(), job);
+        assertEquals(List.of(1, 2), journal.getLocatieIds());
+        journal.append(List.of(5));
+        journal.close();
+
+        assertEquals(List.of(1, 2, 5), ImportJournal.open(directory.toFile(), job).getLocatieIds());
+    }
+
+    @Test
+    void laatsteRegeleindeOntbreekt() throws IOException {
+        GioImportJob job = job("a");
+        ImportJournal journal = ImportJournal.open(directory.toFile(), job);
+        journal.append(List.of(1, 2));
+        journal.close();
+        String inhoud = new String(Files.readAllBytes(journalFile(job)), StandardCharsets.UTF_8);
+        Files.write(journalFile(job), inhoud.substring(0, inhoud.length() - 1).getBytes(StandardCharsets.UTF_8));
+
+        journal = ImportJournal.open(directory.toFile(), job);
+        journal.append(List.of(3));
+        journal.close();
+
+        assertEquals(List.of(1, 2, 3), ImportJournal.open(directory.toFile(), job).getLocatieIds());
+    }
+
+    @Test
+    void gewijzigdBestandBegintOpnieuw() throws IOException {
+        GioImportJob job = job("a");
+        ImportJournal journal = ImportJournal.open(directory.toFile(), job);
+        journal.append(List.of(1, 2));
+        journal.close();
+        Files.write(job.getFile().toPath(), "<gewijzigd/>".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        assertEquals(0, ImportJournal.open(directory.toFile(), job).size());
+    }
+
+    @Test
+    void andereNaamBegintOpnieuw() throws IOException {
+        GioImportJob job = job("a");
+        ImportJournal journal = ImportJournal.open(directory.toFile(), job);
+        journal.append(List.of(1, 2));
+        journal.close();
+
+        GioImportJob andereNaam = new GioImportJob(job.getFile(), "b", job.getRegelingExpression());
+        assertEquals(0, ImportJournal.open(directory.toFile(), andereNaam).size());
+    }
+
+    @Test
+    void gevalideerd() throws IOException {
+        GioImportJob job = job("a");
+        ImportJournal journal = ImportJournal.open(directory.toFile(), job);
+        assertFalse(journal.isGevalideerd());
+        journal.setGevalideerd("vlak");
+        journal.append(List.of(1));
+        journal.close();
+
+        journal = ImportJournal.open(directory.toFile(), job);
+        assertTrue(journal.isGevalideerd());
+        assertEquals("vlak", journal.getGeometrietype());
+        assertEquals(List.of(1), journal.getLocatieIds());
+        journal.delete();
+
+        journal = ImportJournal.open(directory.toFile(), job);
+        assertFalse(journal.isGevalideerd());
+        assertNull(journal.getGeometrietype());
+    }
+
+    private GioImportJob job(String naam) throws IOException {
+        File gio = directory.resolve(naam + ".gml").toFile();
+        if (!gio.exists()) {
+            Files.write(gio.toPath(), "<gio/>".getBytes(StandardCharsets.UTF_8));
+        }
+        return new GioImportJob(gio, naam, "/akn/nl/act/gm0297/2021/test/nld@2021;1");
+    }
+
+    private Path journalFile(GioImportJob job) {
+        return directory.resolve(job.getFile().getName() + ".journal");
+    }
+}
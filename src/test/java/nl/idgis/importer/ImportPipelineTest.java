@@ -0,0 +1,132 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportPipelineTest {
+
+    private static final String GML = "<gml:Point xmlns:gml=\"http://www.opengis.net/gml/3.2\"><gml:pos>1 2</gml:pos></gml:Point>";
+
+    @Test
+    void documentvolgordeMetMeerdereThreads() {
+        // Iedere tiende locatie verwijst naar een eerder id, de chunks worden in willekeurige volgorde klaar
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(i % 10 == 9 ? ids.get(i / 2) : "id-" + i);
+        }
+
+        Map<String, Integer> locatieIds = new ConcurrentHashMap<>();
+        Set<String> geschreven = Collections.synchronizedSet(new HashSet<>());
+        AtomicInteger volgende = new AtomicInteger();
+        ImportPipeline.ChunkWriter writer = chunk -> {
+            slaap((int) (Math.random() * 5));
+            int[] result = new int[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                String id = chunk.get(i).getId();
+                assertTrue(geschreven.add(id), "id in meer dan een chunk: " + id);
+                result[i] = locatieIds.computeIfAbsent(id, key -> volgende.incrementAndGet());
+            }
+            return result;
+        };
+
+        List<Integer> result;
+        try (ImportPipeline pipeline = new ImportPipeline(writer, options(4, 7), null, aantal -> { }, metrics())) {
+            ids.forEach(id -> pipeline.accept(new GioLocatie(id, id, GML)));
+            result = pipeline.finish();
+        }
+
+        assertEquals(ids.size(), result.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(locatieIds.get(ids.get(i)), result.get(i), "locatie " + i);
+        }
+    }
+
+    @Test
+    void foutVanEenWorker() {
+        IllegalStateException fout = new IllegalStateException("chunk mislukt");
+        AtomicInteger chunks = new AtomicInteger();
+        ImportPipeline.ChunkWriter writer = chunk -> {
+            if (chunks.incrementAndGet() == 2) {
+                throw fout;
+            }
+            return new int[chunk.size()];
+        };
+
+        // De fout komt bij het aanbieden van een volgende chunk of bij finish, in ieder geval de fout van de worker
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> {
+            try (ImportPipeline pipeline = new ImportPipeline(writer, options(2, 5), null, aantal -> { }, metrics())) {
+                for (int i = 0; i < 100; i++) {
+                    pipeline.accept(new GioLocatie("id-" + i, null, GML));
+                }
+                pipeline.finish();
+            }
+        });
+        assertSame(fout, e);
+    }
+
+    @Test
+    void checkpointNaIedereChunkBijEenThread() {
+        List<Integer> checkpoints = new ArrayList<>();
+        AtomicInteger volgende = new AtomicInteger();
+        ImportPipeline.ChunkWriter writer = chunk -> chunk.stream().mapToInt(locatie -> volgende.incrementAndGet()).toArray();
+
+        try (ImportPipeline pipeline = new ImportPipeline(writer, options(1, 4), null, checkpoints::add, metrics())) {
+            for (int i = 0; i < 8; i++) {
+                pipeline.accept(new GioLocatie("id-" + i, null, GML));
+            }
+            // Na een checkpoint zijn alle aangeboden locaties weggeschreven
+            assertEquals(List.of(4, 4), checkpoints);
+            assertEquals(List.of(5, 6, 7, 8), pipeline.getLocatieIds(4));
+
+            pipeline.accept(new GioLocatie("id-8", null, GML));
+            pipeline.accept(new GioLocatie("id-9", null, GML));
+            assertEquals(List.of(4, 4), checkpoints);
+
+            assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), pipeline.finish());
+            assertEquals(List.of(4, 4, 2), checkpoints);
+        }
+    }
+
+    @Test
+    void verschillendeGeometrietypen() {
+        String lijn = "<gml:LineString xmlns:gml=\"http://www.opengis.net/gml/3.2\"><gml:posList>0 0 1 1</gml:posList></gml:LineString>";
+        try (ImportPipeline pipeline = new ImportPipeline(chunk -> new int[chunk.size()], options(1, 10), null, aantal -> { }, metrics())) {
+            pipeline.accept(new GioLocatie("a", null, GML));
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> pipeline.accept(new GioLocatie("b", null, lijn)));
+            assertTrue(e.getMessage().contains("verschillende geometrietypen"), e.getMessage());
+            assertEquals("punt", pipeline.getGeometrietype());
+        }
+    }
+
+    private static ImportOptions options(int threads, int batchSize) {
+        ImportOptions options = new ImportOptions();
+        options.setThreads(threads);
+        options.setBatchSize(batchSize);
+        return options;
+    }
+
+    private static ImportMetrics metrics() {
+        return new ImportMetrics(MetricsRegistry.NOOP, "test");
+    }
+
+    private static void slaap(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
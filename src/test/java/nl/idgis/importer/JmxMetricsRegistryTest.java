@@ -0,0 +1,60 @@
+package nl.idgis.importer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.Attribute;
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JmxMetricsRegistryTest {
+
+    private final JmxMetricsRegistry registry = new JmxMetricsRegistry();
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private ObjectName name;
+
+    @BeforeEach
+    void register() throws Exception {
+        name = new ObjectName(JmxMetricsRegistry.OBJECT_NAME);
+        registry.register();
+    }
+
+    @AfterEach
+    void close() {
+        registry.close();
+    }
+
+    @Test
+    void metingen() throws Exception {
+        registry.record("db.insert", 3_000_000);
+        registry.record("db.insert", 2_000_000);
+        registry.increment("locaties", 7);
+
+        assertEquals(2L, server.getAttribute(name, "db.insert.aantal"));
+        assertEquals(5L, server.getAttribute(name, "db.insert.totaalMs"));
+        assertEquals(7L, server.getAttribute(name, "locaties"));
+        assertThrows(AttributeNotFoundException.class, () -> server.getAttribute(name, "onbekend"));
+    }
+
+    @Test
+    void alleenTeLezen() {
+        registry.increment("locaties", 1);
+
+        assertThrows(AttributeNotFoundException.class, () -> server.setAttribute(name, new Attribute("locaties", 2L)));
+    }
+
+    @Test
+    void geenOperaties() {
+        ReflectionException e = assertThrows(ReflectionException.class,
+                () -> server.invoke(name, "reset", new Object[0], new String[0]));
+        assertInstanceOf(NoSuchMethodException.class, e.getTargetException());
+    }
+}